@@ -0,0 +1,44 @@
+package project.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark module.
+ * The module needs JMH 1.37, which is in {@code lib/} next to the JAXB jars: {@code jmh-core},
+ * {@code jmh-generator-annprocess} and their dependencies {@code jopt-simple} 5.0.4 and {@code commons-math3} 3.6.1.
+ * The annotation processor of {@code jmh-generator-annprocess} generates the benchmark classes when the module is
+ * compiled, so annotation processing must be turned on for this module only. From the root of the project, without an IDE:
+ * <pre>
+ * javac -proc:none -cp "lib/*" -d out/production/PersonalCalendar $(find src -name '*.java')
+ * javac -cp "out/production/PersonalCalendar:lib/*" -d out/production/Benchmarks $(find benchmarks/src -name '*.java')
+ * java -cp "out/production/Benchmarks:out/production/PersonalCalendar:lib/*" project.benchmarks.BenchmarkRunner
+ * </pre>
+ * Every benchmark reports throughput and average time, the GC profiler adds the allocation rate.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Private Constructor
+     */
+    private BenchmarkRunner(){}
+
+    /**
+     * Runs the benchmarks.
+     * @param args an optional regular expression selecting the benchmarks, for example {@code OperationBenchmarks.find}
+     *             and optionally the event counts to run, for example {@code 1000,10000}
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder=new OptionsBuilder();
+        builder.include(args.length>0 ? args[0] : "project.benchmarks.*Benchmarks");
+        if(args.length>1)
+            builder.param("eventCount",args[1].split(","));
+
+        Options options=builder.addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,156 @@
+package project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarService;
+import project.models.calendar.PersonalCalendar;
+import project.models.parsers.LocalDateParser;
+import project.models.parsers.XMLParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+
+/**
+ * Benchmark state holding a generated calendar of {@link #eventCount} events loaded into a {@link CalendarService},
+ * together with the calendar files the file based commands read.
+ * <ul>
+ *     <li>{@code loaded.xml} - the loaded calendar, six events per working day</li>
+ *     <li>{@code external.xml} - a calendar of the same days with two events per day, for findslotwith</li>
+ *     <li>{@code merged.xml} - a calendar of the days after the loaded one, so merge finds no collisions</li>
+ * </ul>
+ * The commands print their results, so the standard output is discarded while the benchmarks run.
+ */
+@State(Scope.Benchmark)
+public class CalendarState {
+
+    /**
+     * Number of events of the loaded calendar.
+     */
+    @Param({"1000","10000","100000","1000000"})
+    public int eventCount;
+
+    /**
+     * Events per working day of the loaded calendar.
+     */
+    static final int EVENTS_PER_DAY=SyntheticCalendars.MAX_EVENTS_PER_DAY;
+
+    /**
+     * Events per working day of the external calendar.
+     */
+    static final int EXTERNAL_EVENTS_PER_DAY=2;
+
+    /**
+     * The service holding the loaded calendar.
+     */
+    public CalendarService calendarService;
+
+    /**
+     * The loaded calendar.
+     */
+    public PersonalCalendar personalCalendar;
+
+    /**
+     * Directory of the generated files.
+     */
+    public File directory;
+
+    /**
+     * The loaded calendar file.
+     */
+    public File loadedFile;
+
+    /**
+     * The external calendar file.
+     */
+    public File externalFile;
+
+    /**
+     * The calendar file without collisions with the loaded one.
+     */
+    public File mergedFile;
+
+    /**
+     * A day in the middle of the loaded calendar, formatted for the commands.
+     */
+    public String middleDay;
+
+    /**
+     * The first day of the loaded calendar, formatted for the commands.
+     */
+    public String firstDay;
+
+    /**
+     * The last day of the loaded calendar, formatted for the commands.
+     */
+    public String lastDay;
+
+    /**
+     * The standard output replaced while the benchmarks run.
+     */
+    private PrintStream standardOutput;
+
+    /**
+     * Generates the calendars and writes their files.
+     * @throws IOException if the temporary directory cannot be created
+     * @throws OperationException if a file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, OperationException {
+        standardOutput=System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        directory=Files.createTempDirectory("calendar-benchmarks").toFile();
+        loadedFile=new File(directory,"loaded.xml");
+        externalFile=new File(directory,"external.xml");
+        mergedFile=new File(directory,"merged.xml");
+
+        XMLParser parser=new XMLParser();
+        LocalDate last=SyntheticCalendars.lastDay(eventCount,EVENTS_PER_DAY);
+        parser.writeFile(SyntheticCalendars.generate(eventCount,EVENTS_PER_DAY),loadedFile);
+        parser.writeFile(SyntheticCalendars.generate(eventCount/EVENTS_PER_DAY*EXTERNAL_EVENTS_PER_DAY,EXTERNAL_EVENTS_PER_DAY),externalFile);
+        parser.writeFile(SyntheticCalendars.generate(Math.max(1,eventCount/10),EVENTS_PER_DAY,last.plusDays(1)),mergedFile);
+
+        firstDay=LocalDateParser.format(SyntheticCalendars.FIRST_DAY);
+        lastDay=LocalDateParser.format(last);
+        middleDay=LocalDateParser.format(bookableDay(SyntheticCalendars.lastDay(eventCount/2,EVENTS_PER_DAY),last));
+
+        calendarService=new CalendarService(new PersonalCalendar(),parser);
+        calendarService.setLoadedFile(loadedFile);
+        calendarService.importToRepository();
+        personalCalendar=calendarService.getRepository();
+    }
+
+    /**
+     * Moves the day out of February of a common year, where the event constructor used by book rejects every date.
+     * @param day the preferred day
+     * @param last the last day of the calendar
+     * @return a day with events that can be booked on
+     */
+    private static LocalDate bookableDay(LocalDate day, LocalDate last){
+        while(day.getMonth()==Month.FEBRUARY&&!day.isLeapYear()&&day.isBefore(last))
+            day=day.plusDays(1);
+        while(day.getDayOfWeek()==DayOfWeek.SATURDAY||day.getDayOfWeek()==DayOfWeek.SUNDAY)
+            day=day.plusDays(1);
+        return day;
+    }
+
+    /**
+     * Deletes the generated files and restores the standard output.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(standardOutput);
+
+        File[] files=directory.listFiles();
+        if(files!=null)
+            for(File file:files)
+                file.delete();
+        directory.delete();
+    }
+}
@@ -0,0 +1,162 @@
+package project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import project.exceptions.CalendarException;
+import project.models.calendar.CalendarService;
+import project.models.calendar.PersonalCalendar;
+import project.models.operations.inqueries.*;
+import project.models.operations.manipulations.Book;
+import project.models.operations.manipulations.Merge;
+import project.models.parsers.LocalDateParser;
+import project.models.parsers.LocalTimeParser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the calendar commands over the generated calendars of {@link CalendarState}.
+ * Every benchmark constructs the operation from its instructions and executes it, the same way the command line does.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class OperationBenchmarks {
+
+    /**
+     * Books an event into a free slot and unbooks it again, so the calendar keeps its size.
+     * @param state the loaded calendar
+     * @throws CalendarException if the event cannot be booked
+     */
+    @Benchmark
+    public void book(CalendarState state) throws CalendarException {
+        new Book(state.personalCalendar, List.of(state.middleDay,"17:00","18:00","Benchmark","booked")).execute();
+        state.personalCalendar.remove(SyntheticCalendars.event(LocalDateParser.parse(state.middleDay),
+                LocalTimeParser.parse("17:00"),LocalTimeParser.parse("18:00"),null,null));
+    }
+
+    /**
+     * Prints the agenda of a day in the middle of the calendar.
+     * @param state the loaded calendar
+     * @throws CalendarException if the agenda fails
+     */
+    @Benchmark
+    public void agenda(CalendarState state) throws CalendarException {
+        new Agenda(state.personalCalendar, List.of(state.middleDay)).execute();
+    }
+
+    /**
+     * Searches a word contained in the note of every event.
+     * @param state the loaded calendar
+     * @throws CalendarException if nothing is found
+     */
+    @Benchmark
+    public void findCommonWord(CalendarState state) throws CalendarException {
+        new Find(state.personalCalendar, List.of(SyntheticCalendars.COMMON_WORD)).execute();
+    }
+
+    /**
+     * Searches a string contained in the name of a tenth of the events.
+     * @param state the loaded calendar
+     * @throws CalendarException if nothing is found
+     */
+    @Benchmark
+    public void findSelectiveWord(CalendarState state) throws CalendarException {
+        new Find(state.personalCalendar, List.of("intervi")).execute();
+    }
+
+    /**
+     * Sums the busy hours per day of the week over the whole calendar.
+     * @param state the loaded calendar
+     * @throws CalendarException if the range is invalid
+     */
+    @Benchmark
+    public void busydays(CalendarState state) throws CalendarException {
+        new Busydays(state.personalCalendar, List.of(state.firstDay,state.lastDay)).execute();
+    }
+
+    /**
+     * Looks for a free half hour in a day in the middle of the calendar.
+     * @param state the loaded calendar
+     * @throws CalendarException if there is no free slot
+     */
+    @Benchmark
+    public void findSlot(CalendarState state) throws CalendarException {
+        new FindSlot(state.personalCalendar, List.of(state.middleDay,"0.5")).execute();
+    }
+
+    /**
+     * Looks for a free half hour shared with the external calendar, including reading the external file:
+     * the calendar cache is cleared before every invocation.
+     * @param state the loaded calendar
+     * @param coldCache clears the calendar cache
+     * @throws CalendarException if the external calendar cannot be read
+     */
+    @Benchmark
+    public void findSlotWith(CalendarState state, ColdCache coldCache) throws CalendarException {
+        new FindSlotWith(state.calendarService, List.of(state.middleDay,"0.5",state.externalFile.getPath())).execute();
+    }
+
+    /**
+     * Looks for a free half hour shared with the external calendar, which comes from the calendar cache
+     * after the first invocation.
+     * @param state the loaded calendar
+     * @throws CalendarException if the external calendar cannot be read
+     */
+    @Benchmark
+    public void findSlotWithCached(CalendarState state) throws CalendarException {
+        new FindSlotWith(state.calendarService, List.of(state.middleDay,"0.5",state.externalFile.getPath())).execute();
+    }
+
+    /**
+     * Merges a calendar without collisions into a fresh copy of the loaded calendar, including reading the merged file.
+     * Every copy has its own service with an empty calendar cache, so the file is parsed by every invocation.
+     * @param state the copy of the loaded calendar
+     * @param calendarState the loaded calendar
+     * @throws CalendarException if the merged calendar cannot be read
+     */
+    @Benchmark
+    public void merge(MergeState state, CalendarState calendarState) throws CalendarException {
+        new Merge(state.calendarService, List.of(calendarState.mergedFile.getPath())).execute();
+    }
+
+    /**
+     * Clears the calendar cache of the loaded calendar before every invocation, so the external file is parsed again.
+     */
+    @State(Scope.Thread)
+    public static class ColdCache {
+
+        /**
+         * Clears the calendar cache.
+         * @param calendarState the loaded calendar
+         */
+        @Setup(Level.Invocation)
+        public void setUp(CalendarState calendarState) {
+            calendarState.calendarService.getCalendarCache().clear();
+        }
+    }
+
+    /**
+     * A fresh copy of the loaded calendar for every merge, because merging changes the calendar.
+     */
+    @State(Scope.Thread)
+    public static class MergeState {
+
+        /**
+         * The service holding the copy.
+         */
+        public CalendarService calendarService;
+
+        /**
+         * Copies the loaded calendar.
+         * @param calendarState the loaded calendar
+         */
+        @Setup(Level.Invocation)
+        public void setUp(CalendarState calendarState) {
+            calendarService=new CalendarService(new PersonalCalendar(calendarState.personalCalendar.getCalendarEvents()),
+                    calendarState.calendarService.getParser());
+            calendarService.setLoadedFile(calendarState.loadedFile);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package project.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import project.exceptions.OperationException;
+import project.models.calendar.PersonalCalendar;
+import project.models.parsers.XMLParser;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reading and writing the generated calendars with {@link XMLParser}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class ParserBenchmarks {
+
+    /**
+     * Reads the loaded calendar file.
+     * @param state the generated calendar files
+     * @return the read calendar
+     * @throws OperationException if the file cannot be read
+     */
+    @Benchmark
+    public PersonalCalendar readFile(CalendarState state) throws OperationException {
+        return new XMLParser().readFile(state.loadedFile);
+    }
+
+    /**
+     * Writes the loaded calendar to a separate file.
+     * @param state the generated calendar
+     * @throws OperationException if the file cannot be written
+     */
+    @Benchmark
+    public void writeFile(CalendarState state) throws OperationException {
+        new XMLParser().writeFile(state.personalCalendar, new File(state.directory,"written.xml"));
+    }
+}
@@ -0,0 +1,158 @@
+package project.benchmarks;
+
+import project.exceptions.InvalidTimeIntervalException;
+import project.models.calendar.CalendarEvent;
+import project.models.calendar.PersonalCalendar;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Random;
+
+/**
+ * Generator of synthetic calendars for the benchmarks.
+ * Events are laid out on consecutive working days, one hour long every ninety minutes from 08:00,
+ * so the events of a day never collide and every day keeps free gaps for findslot.
+ * Names and notes are drawn from a small vocabulary with a fixed seed, so every run generates the same calendar.
+ */
+public final class SyntheticCalendars {
+
+    /**
+     * First day of the generated calendars, a Monday.
+     */
+    public static final LocalDate FIRST_DAY=LocalDate.of(2020,1,6);
+
+    /**
+     * Word every generated note contains, used as a search string that matches all events.
+     */
+    public static final String COMMON_WORD="sync";
+
+    /**
+     * Names of the generated events.
+     */
+    private static final String[] NAMES={"Standup","Review","Planning","Retro","Lunch","Interview","Demo","Workshop","Training","Support"};
+
+    /**
+     * Notes of the generated events.
+     */
+    private static final String[] NOTES={"weekly sync","team sync","sync with sales","sync on release","client sync"};
+
+    /**
+     * Seed of the names and notes.
+     */
+    private static final long SEED=42;
+
+    /**
+     * Length of an event in minutes.
+     */
+    private static final int EVENT_MINUTES=60;
+
+    /**
+     * Distance between the starts of two events of a day in minutes.
+     */
+    private static final int SLOT_MINUTES=90;
+
+    /**
+     * Start of the first event of a day.
+     */
+    private static final LocalTime DAY_START=LocalTime.of(8,0);
+
+    /**
+     * Largest number of events of a day that still end before 17:00.
+     */
+    public static final int MAX_EVENTS_PER_DAY=6;
+
+    /**
+     * A private constructor because we don't want initializations of this class.
+     */
+    private SyntheticCalendars(){}
+
+    /**
+     * Generates a calendar of the given size starting at {@link #FIRST_DAY}.
+     * @param eventCount the number of events
+     * @param eventsPerDay the number of events of each working day, at most {@link #MAX_EVENTS_PER_DAY}
+     * @return the generated calendar
+     */
+    public static PersonalCalendar generate(int eventCount, int eventsPerDay){
+        return generate(eventCount,eventsPerDay,FIRST_DAY);
+    }
+
+    /**
+     * Generates a calendar of the given size.
+     * @param eventCount the number of events
+     * @param eventsPerDay the number of events of each working day, at most {@link #MAX_EVENTS_PER_DAY}
+     * @param firstDay the first day with events
+     * @return the generated calendar
+     */
+    public static PersonalCalendar generate(int eventCount, int eventsPerDay, LocalDate firstDay){
+        if(eventsPerDay<1||eventsPerDay>MAX_EVENTS_PER_DAY)
+            throw new IllegalArgumentException("Events per day must be between 1 and "+MAX_EVENTS_PER_DAY);
+
+        Random random=new Random(SEED);
+        PersonalCalendar personalCalendar=new PersonalCalendar();
+
+        LocalDate date=nextWorkingDay(firstDay);
+        int slot=0;
+        for(int i=0;i<eventCount;i++){
+            if(slot==eventsPerDay){
+                date=nextWorkingDay(date.plusDays(1));
+                slot=0;
+            }
+
+            LocalTime startTime=DAY_START.plusMinutes((long) slot*SLOT_MINUTES);
+            personalCalendar.addEvent(event(date,startTime,startTime.plusMinutes(EVENT_MINUTES),
+                    NAMES[random.nextInt(NAMES.length)],NOTES[random.nextInt(NOTES.length)]));
+            slot++;
+        }
+
+        return personalCalendar;
+    }
+
+    /**
+     * Returns the last day with events of a calendar generated with the given size.
+     * @param eventCount the number of events
+     * @param eventsPerDay the number of events of each working day
+     * @return the last day with events
+     */
+    public static LocalDate lastDay(int eventCount, int eventsPerDay){
+        LocalDate date=nextWorkingDay(FIRST_DAY);
+        for(int days=(eventCount-1)/eventsPerDay;days>0;days--)
+            date=nextWorkingDay(date.plusDays(1));
+        return date;
+    }
+
+    /**
+     * Creates a work day event. The setters are used instead of the full constructor,
+     * so events can be generated on any date.
+     * @param date the date
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param name the name
+     * @param note the note
+     * @return the event
+     */
+    public static CalendarEvent event(LocalDate date, LocalTime startTime, LocalTime endTime, String name, String note){
+        CalendarEvent event=new CalendarEvent();
+        event.setDate(date);
+        try {
+            event.setEndTime(endTime);
+            event.setStartTime(startTime);
+        } catch (InvalidTimeIntervalException e) {
+            throw new IllegalArgumentException(e);
+        }
+        event.setName(name);
+        event.setNote(note);
+        return event;
+    }
+
+    /**
+     * Returns the given date, or the following Monday if it falls on a weekend.
+     * @param date the date
+     * @return the nearest working day on or after the date
+     */
+    private static LocalDate nextWorkingDay(LocalDate date){
+        while(date.getDayOfWeek()==DayOfWeek.SATURDAY||date.getDayOfWeek()==DayOfWeek.SUNDAY)
+            date=date.plusDays(1);
+        return date;
+    }
+}
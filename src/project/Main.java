@@ -1,21 +1,178 @@
 package project;
 
+import project.exceptions.CalendarException;
+import project.exceptions.OperationException;
 import project.models.cli.CalendarCLI;
+import project.models.operations.Commands;
+import project.models.parsers.JAXBContextHolder;
+import project.models.parsers.StaxParser;
+import project.models.parsers.XMLParser;
+import project.models.server.CalendarServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * The entry point of the calendar program.
  */
 public class Main {
+
+    /**
+     * Command line option that selects the XML parser: {@code --parser=jaxb} (default) or {@code --parser=stax}.
+     */
+    private static final String PARSER_OPTION="--parser=";
+
+    /**
+     * Command line option that turns on the journal mode, in which save appends the changes to a journal instead of rewriting the file.
+     */
+    private static final String JOURNAL_OPTION="--journal";
+
+    /**
+     * Command line option that runs the commands of a script file, or of the standard input for {@code -}, without prompts.
+     */
+    private static final String BATCH_OPTION="--batch";
+
+    /**
+     * Command line option that opens a calendar file and serves it through the local HTTP API instead of the console.
+     */
+    private static final String SERVE_OPTION="--serve";
+
+    /**
+     * Script argument of {@link #BATCH_OPTION} which stands for the standard input.
+     */
+    private static final String STANDARD_INPUT="-";
+
     /**
      * Private Constructor
      */
     private Main(){}
     /**
      * The main method that starts the calendar program by calling the CalendarCLI run method.
-     * @param args The command line arguments (not used).
+     * @param args The command line arguments. {@code --parser=stax} selects the streaming XML parser,
+     *             {@code --journal} turns on the journal mode,
+     *             {@code --batch <file|->} runs the commands of the file or of the standard input with buffered output,
+     *             {@code --serve <port> <file>} opens the file and serves it through the local HTTP API.
      */
     public static void main(String[] args) {
+        CalendarCLI calendarCLI=CalendarCLI.getInstance();
+        String script=null;
+        String servedFile=null;
+        int port=0;
+
+        try {
+            for (int i=0;i<args.length;i++) {
+                if(args[i].equals(BATCH_OPTION)) {
+                    if(++i==args.length)
+                        throw new OperationException("'" + BATCH_OPTION + "' expects <file|->");
+                    script=args[i];
+                    continue;
+                }
+                if(args[i].equals(SERVE_OPTION)) {
+                    if(i+2>=args.length)
+                        throw new OperationException("'" + SERVE_OPTION + "' expects <port> <file>");
+                    port=parsePort(args[++i]);
+                    servedFile=args[++i];
+                    continue;
+                }
+                applyOption(calendarCLI, args[i]);
+            }
+        } catch (OperationException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        if(calendarCLI.getCalendarService().getParser() instanceof XMLParser)
+            JAXBContextHolder.warmUp();
+
+        if(servedFile!=null) {
+            serve(calendarCLI,port,servedFile);
+            return;
+        }
+
+        if(script==null) {
+            calendarCLI.run();
+            return;
+        }
+
+        try (Reader input=openScript(script)) {
+            calendarCLI.runBatch(input);
+        } catch (IOException e) {
+            System.out.println("Cannot read script: "+script);
+        }
+    }
+
+    /**
+     * Opens the calendar file and starts the HTTP server, which keeps running until the process is stopped.
+     * @param calendarCLI the command line interface which executes the requests
+     * @param port the port to listen on
+     * @param file the calendar file
+     */
+    private static void serve(CalendarCLI calendarCLI, int port, String file) {
+        try {
+            calendarCLI.execute(Commands.OPEN,List.of(file));
+
+            CalendarServer server=new CalendarServer(calendarCLI,port);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            System.out.println("Serving "+file+" on http://localhost:"+server.getPort()+"/");
+        } catch (CalendarException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Cannot listen on port "+port+": "+e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the port of the HTTP server.
+     * @param port the port argument
+     * @return the port
+     * @throws OperationException if the argument is not a valid port
+     */
+    private static int parsePort(String port) throws OperationException {
+        try {
+            int value=Integer.parseInt(port);
+            if(value>=0&&value<=65535)
+                return value;
+        } catch (NumberFormatException ignored) {}
+        throw new OperationException(port + " is not a valid port!");
+    }
+
+    /**
+     * Opens the script of the batch mode.
+     * @param script the path of the script, or {@code -} for the standard input
+     * @return the reader of the script
+     * @throws IOException if the script cannot be opened
+     */
+    private static Reader openScript(String script) throws IOException {
+        if(script.equals(STANDARD_INPUT))
+            return new BufferedReader(new InputStreamReader(System.in));
+        return Files.newBufferedReader(Path.of(script));
+    }
+
+    /**
+     * Applies a single command line option to the command line interface.
+     * @param calendarCLI the command line interface
+     * @param arg the option
+     * @throws OperationException if the option is not recognized
+     */
+    private static void applyOption(CalendarCLI calendarCLI, String arg) throws OperationException {
+        if(arg.equals(JOURNAL_OPTION)) {
+            calendarCLI.getCalendarService().setJournaling(true);
+            return;
+        }
+
+        if(!arg.startsWith(PARSER_OPTION))
+            throw new OperationException(arg + " is not recognized as an option!");
 
-        CalendarCLI.getInstance().run();
+        switch (arg.substring(PARSER_OPTION.length())) {
+            case "jaxb" -> calendarCLI.getCalendarService().setParser(new XMLParser());
+            case "stax" -> calendarCLI.getCalendarService().setParser(new StaxParser());
+            default -> throw new OperationException(arg + " is not recognized as a parser!");
+        }
     }
-}
\ No newline at end of file
+}
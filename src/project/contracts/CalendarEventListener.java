@@ -0,0 +1,31 @@
+package project.contracts;
+
+import project.models.calendar.CalendarEvent;
+
+import java.time.LocalDate;
+
+/**
+ * The CalendarEventListener interface is implemented by classes that follow the changes of a calendar,
+ * for example to log or index them. Changing the name, note or holiday flag of a stored event is reported
+ * as the removal of the old state followed by the addition of the new one.
+ */
+public interface CalendarEventListener {
+
+    /**
+     * Called after an event was added to the calendar.
+     * @param calendarEvent the added event
+     */
+    void eventAdded(CalendarEvent calendarEvent);
+
+    /**
+     * Called after an event was removed from the calendar.
+     * @param calendarEvent the removed event
+     */
+    void eventRemoved(CalendarEvent calendarEvent);
+
+    /**
+     * Called after a date was marked as holiday.
+     * @param date the holiday date
+     */
+    void holidayAdded(LocalDate date);
+}
@@ -0,0 +1,35 @@
+package project.contracts;
+
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarEvent;
+
+import java.util.List;
+
+/**
+ * The SegmentSource interface represents a calendar file whose events are read one month at a time,
+ * so a calendar can be opened without reading all of its events and load only the months it uses.
+ * The months are numbered as in {@link project.util.TimeEncoding#toEpochMonth(int)}.
+ */
+public interface SegmentSource {
+
+    /**
+     * Returns the months which have events in the file.
+     * @return the epoch months in ascending order
+     */
+    int[] getMonths();
+
+    /**
+     * Returns the number of events of a month without reading them.
+     * @param month the epoch month
+     * @return the number of events, 0 if the month has none
+     */
+    int getEventCount(int month);
+
+    /**
+     * Reads the events of a month.
+     * @param month the epoch month
+     * @return new event objects ordered by date and start time, empty if the month has none
+     * @throws OperationException if the segment of the month is damaged
+     */
+    List<CalendarEvent> readSegment(int month) throws OperationException;
+}
@@ -0,0 +1,31 @@
+package project.exceptions;
+
+/**
+ * Wraps an {@link OperationException} which occurs below an interface that cannot throw it, for example while a
+ * month of a lazily opened calendar file is read inside a {@link java.util.Set} method of the calendar.
+ * The command line interface unwraps it, so the user gets the message of the operation exception.
+ */
+public class UncheckedOperationException extends RuntimeException {
+
+    /**
+     * Version of the serialized form.
+     */
+    private static final long serialVersionUID=1L;
+
+    /**
+     * Constructs a new unchecked operation exception.
+     * @param cause the wrapped operation exception
+     */
+    public UncheckedOperationException(OperationException cause) {
+        super(cause.getMessage(),cause);
+    }
+
+    /**
+     * Returns the wrapped operation exception.
+     * @return the operation exception
+     */
+    @Override
+    public synchronized OperationException getCause() {
+        return (OperationException) super.getCause();
+    }
+}
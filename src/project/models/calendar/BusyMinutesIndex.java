@@ -0,0 +1,281 @@
+package project.models.calendar;
+
+import project.contracts.CalendarEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Running aggregate of the busy minutes of a calendar per day of the week.
+ * For every day of the week a Fenwick tree over the week numbers holds the sum of the durations and the number
+ * of the events of that day in every week. The days of a given day of the week inside any date range are a
+ * contiguous range of weeks, so the busy minutes of a range are seven range sums of O(log W) each,
+ * no matter how many events the calendar has. The index follows the calendar as a {@link CalendarEventListener}.
+ * It is safe for concurrent use, queries share a read lock and changes take the write lock.
+ */
+public class BusyMinutesIndex implements CalendarEventListener {
+
+    /**
+     * Number of days of the week.
+     */
+    private static final int DAYS_IN_WEEK=DayOfWeek.values().length;
+
+    /**
+     * Number of weeks covered by the trees when the first event is added.
+     */
+    private static final int INITIAL_WEEKS=64;
+
+    /**
+     * Week number of the first position of the trees.
+     */
+    private long firstWeek;
+
+    /**
+     * Number of weeks covered by the trees.
+     */
+    private int capacity;
+
+    /**
+     * Fenwick trees of the busy minutes, one per {@link DayOfWeek#ordinal()}, indexed from 1.
+     */
+    private long[][] minuteTrees;
+
+    /**
+     * Fenwick trees of the number of events, one per {@link DayOfWeek#ordinal()}, indexed from 1.
+     */
+    private int[][] countTrees;
+
+    /**
+     * Guards the trees: listener callbacks write, queries read.
+     */
+    private final ReadWriteLock lock=new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an index over the given events. The index must be registered as a listener of the calendar
+     * which owns the events to stay up to date.
+     * @param events the events of the calendar
+     */
+    public BusyMinutesIndex(Iterable<CalendarEvent> events) {
+        for(CalendarEvent event:events)
+            eventAdded(event);
+    }
+
+    /**
+     * Adds the duration of the event to its week and day of the week.
+     * @param calendarEvent the added event
+     */
+    @Override
+    public void eventAdded(CalendarEvent calendarEvent) {
+        update(calendarEvent.getEpochDay(),duration(calendarEvent),1);
+    }
+
+    /**
+     * Subtracts the duration of the event from its week and day of the week.
+     * @param calendarEvent the removed event
+     */
+    @Override
+    public void eventRemoved(CalendarEvent calendarEvent) {
+        update(calendarEvent.getEpochDay(),-duration(calendarEvent),-1);
+    }
+
+    /**
+     * Holidays do not change the durations of the events.
+     * @param date the holiday date
+     */
+    @Override
+    public void holidayAdded(LocalDate date) {}
+
+    /**
+     * Sums the busy minutes of the events between the given dates (both inclusive) per day of the week.
+     * The arrays are indexed by {@link DayOfWeek#ordinal()}.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param busyMinutes receives the sum of the durations in minutes per day of the week
+     * @param eventCounts receives the number of events per day of the week
+     */
+    public void sumByDayOfWeek(LocalDate from, LocalDate to, long[] busyMinutes, int[] eventCounts){
+        lock.readLock().lock();
+        try {
+            if(capacity==0)
+                return;
+
+            long fromDay=from.toEpochDay();
+            long toDay=to.toEpochDay();
+
+            for(int dayOfWeek=0;dayOfWeek<DAYS_IN_WEEK;dayOfWeek++){
+                long firstDay=fromDay+Math.floorMod(dayOfWeek-dayOfWeekOrdinal(fromDay),DAYS_IN_WEEK);
+                long lastDay=toDay-Math.floorMod(dayOfWeekOrdinal(toDay)-dayOfWeek,DAYS_IN_WEEK);
+                if(firstDay>lastDay)
+                    continue;
+
+                long low=Math.max(weekOf(firstDay)-firstWeek,0);
+                long high=Math.min(weekOf(lastDay)-firstWeek,capacity-1L);
+                if(low>high)
+                    continue;
+
+                busyMinutes[dayOfWeek]+=prefixSum(minuteTrees[dayOfWeek],(int) high+1)-prefixSum(minuteTrees[dayOfWeek],(int) low);
+                eventCounts[dayOfWeek]+=prefixSum(countTrees[dayOfWeek],(int) high+1)-prefixSum(countTrees[dayOfWeek],(int) low);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //region Internal Methods
+
+    /**
+     * Adds the given values at the week and day of the week of the given date.
+     * @param epochDay the date as epoch day
+     * @param minutes the minutes to add
+     * @param count the number of events to add
+     */
+    private void update(long epochDay, long minutes, int count){
+        lock.writeLock().lock();
+        try {
+            updateLocked(epochDay,minutes,count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the given values at the week and day of the week of the given date. The caller must hold the write lock.
+     * @param epochDay the date as epoch day
+     * @param minutes the minutes to add
+     * @param count the number of events to add
+     */
+    private void updateLocked(long epochDay, long minutes, int count){
+        long week=weekOf(epochDay);
+        ensureCovered(week);
+
+        int dayOfWeek=dayOfWeekOrdinal(epochDay);
+        int position=(int) (week-firstWeek)+1;
+        add(minuteTrees[dayOfWeek],position,minutes);
+        add(countTrees[dayOfWeek],position,count);
+    }
+
+    /**
+     * Grows the trees so they cover the given week. The covered range is at least doubled,
+     * so the rebuilds cost amortized O(log W) per update.
+     * @param week the week number
+     */
+    private void ensureCovered(long week){
+        if(capacity==0){
+            firstWeek=week;
+            capacity=INITIAL_WEEKS;
+            minuteTrees=new long[DAYS_IN_WEEK][capacity+1];
+            countTrees=new int[DAYS_IN_WEEK][capacity+1];
+            return;
+        }
+
+        long lastWeek=firstWeek+capacity-1;
+        if(week>=firstWeek&&week<=lastWeek)
+            return;
+
+        long newFirstWeek=Math.min(firstWeek,week);
+        long span=Math.max(lastWeek,week)-newFirstWeek+1;
+        int newCapacity=capacity;
+        while(newCapacity<span)
+            newCapacity=Math.multiplyExact(newCapacity,2);
+        if(week<firstWeek)
+            newFirstWeek=Math.max(lastWeek,week)+1-newCapacity;
+
+        int shift=(int) (firstWeek-newFirstWeek);
+        long[][] newMinuteTrees=new long[DAYS_IN_WEEK][newCapacity+1];
+        int[][] newCountTrees=new int[DAYS_IN_WEEK][newCapacity+1];
+        for(int dayOfWeek=0;dayOfWeek<DAYS_IN_WEEK;dayOfWeek++){
+            for(int position=1;position<=capacity;position++){
+                long minutes=prefixSum(minuteTrees[dayOfWeek],position)-prefixSum(minuteTrees[dayOfWeek],position-1);
+                int count=prefixSum(countTrees[dayOfWeek],position)-prefixSum(countTrees[dayOfWeek],position-1);
+                if(count!=0){
+                    add(newMinuteTrees[dayOfWeek],position+shift,minutes);
+                    add(newCountTrees[dayOfWeek],position+shift,count);
+                }
+            }
+        }
+
+        firstWeek=newFirstWeek;
+        capacity=newCapacity;
+        minuteTrees=newMinuteTrees;
+        countTrees=newCountTrees;
+    }
+
+    /**
+     * Adds the value at the given position of a Fenwick tree.
+     * @param tree the tree
+     * @param position the position, starting from 1
+     * @param value the value to add
+     */
+    private static void add(long[] tree, int position, long value){
+        for(;position<tree.length;position+=position&-position)
+            tree[position]+=value;
+    }
+
+    /**
+     * Adds the value at the given position of a Fenwick tree.
+     * @param tree the tree
+     * @param position the position, starting from 1
+     * @param value the value to add
+     */
+    private static void add(int[] tree, int position, int value){
+        for(;position<tree.length;position+=position&-position)
+            tree[position]+=value;
+    }
+
+    /**
+     * Returns the sum of the first positions of a Fenwick tree.
+     * @param tree the tree
+     * @param position the number of positions to sum
+     * @return the sum of the positions 1 to position
+     */
+    private static long prefixSum(long[] tree, int position){
+        long sum=0;
+        for(;position>0;position-=position&-position)
+            sum+=tree[position];
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the first positions of a Fenwick tree.
+     * @param tree the tree
+     * @param position the number of positions to sum
+     * @return the sum of the positions 1 to position
+     */
+    private static int prefixSum(int[] tree, int position){
+        int sum=0;
+        for(;position>0;position-=position&-position)
+            sum+=tree[position];
+        return sum;
+    }
+
+    /**
+     * Returns the duration of the event in minutes.
+     * @param event the event
+     * @return the duration of the event
+     */
+    private static int duration(CalendarEvent event){
+        return event.getEndMinute()-event.getStartMinute();
+    }
+
+    /**
+     * Returns the number of the Monday based week of the given epoch day. The epoch day 0 (1970-01-01) was a Thursday.
+     * @param epochDay the date as epoch day
+     * @return the week number
+     */
+    private static long weekOf(long epochDay){
+        return Math.floorDiv(epochDay+3,DAYS_IN_WEEK);
+    }
+
+    /**
+     * Returns the ordinal of the day of the week of the given epoch day without creating a date.
+     * @param epochDay the date as epoch day
+     * @return the {@link DayOfWeek#ordinal()} of the date
+     */
+    private static int dayOfWeekOrdinal(long epochDay){
+        return Math.floorMod(epochDay+3,DAYS_IN_WEEK);
+    }
+
+    //endregion
+}
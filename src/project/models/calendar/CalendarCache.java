@@ -0,0 +1,231 @@
+package project.models.calendar;
+
+import project.exceptions.OperationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the calendars read from external files, for the commands which read the same colleague calendars
+ * again and again. Entries are keyed by the canonical path of the file and are valid as long as the modification time
+ * and the size of the file and of its journal are unchanged, so an edited file is read again on its next use.
+ * The cache is weighted by the number of events: when the cached calendars hold more than its capacity,
+ * the least recently used ones are dropped.
+ * <p>
+ * The cached calendars are shared by all callers, which must only read them. Events taken over into another
+ * calendar must be copied. The cache is safe for concurrent use, files which are not cached are read outside its lock.
+ */
+public class CalendarCache {
+
+    /**
+     * Default number of events the cached calendars may hold.
+     * It can be set with the system property {@code calendar.cachedEvents}.
+     */
+    public static final int DEFAULT_CAPACITY=Integer.getInteger("calendar.cachedEvents",1<<20);
+
+    /**
+     * Reads a calendar from a file.
+     */
+    @FunctionalInterface
+    public interface Reader {
+
+        /**
+         * Reads the calendar of the file.
+         * @param file the calendar file
+         * @return the calendar
+         * @throws OperationException if the file cannot be read
+         */
+        PersonalCalendar read(File file) throws OperationException;
+    }
+
+    /**
+     * Reads the files which are not cached.
+     */
+    private final Reader reader;
+
+    /**
+     * Maximum number of events of the cached calendars.
+     */
+    private final int capacity;
+
+    /**
+     * Cached calendars by canonical path, in the order of their last use. Guarded by this cache.
+     */
+    private final LinkedHashMap<String,Entry> entries;
+
+    /**
+     * Number of events of the cached calendars. Guarded by this cache.
+     */
+    private long weight;
+
+    //region Counters
+    private final AtomicLong hits=new AtomicLong();
+    private final AtomicLong misses=new AtomicLong();
+    private final AtomicLong evictions=new AtomicLong();
+    //endregion
+
+    /**
+     * Constructs an empty cache.
+     * @param reader reads the files which are not cached
+     * @param capacity the number of events the cached calendars may hold
+     */
+    public CalendarCache(Reader reader, int capacity) {
+        this.reader=reader;
+        this.capacity=capacity;
+        this.entries=new LinkedHashMap<>(16,0.75f,true);
+    }
+
+    /**
+     * Returns the calendar of the file, from the cache if the file has not changed since it was read.
+     * @param file the calendar file
+     * @return the calendar, which must not be changed
+     * @throws OperationException if the file cannot be read
+     */
+    public PersonalCalendar get(File file) throws OperationException {
+        String key=keyOf(file);
+        Stamp stamp=Stamp.of(file);
+
+        synchronized (this) {
+            Entry entry=entries.get(key);
+            if(entry!=null&&entry.stamp.equals(stamp)) {
+                hits.incrementAndGet();
+                return entry.calendar;
+            }
+        }
+
+        misses.incrementAndGet();
+        PersonalCalendar calendar=reader.read(file);
+        put(key,new Entry(calendar,stamp,calendar.getCalendarEvents().size()+1));
+        return calendar;
+    }
+
+    /**
+     * Drops all cached calendars.
+     */
+    public synchronized void clear(){
+        entries.clear();
+        weight=0;
+    }
+
+    //region Getters
+
+    /**
+     * Returns the number of reads served from the cache.
+     * @return the number of hits
+     */
+    public long getHits(){
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of reads which had to read the file.
+     * @return the number of misses
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of calendars dropped to stay within the capacity.
+     * @return the number of evictions
+     */
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of cached calendars.
+     * @return the number of entries
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of events of the cached calendars.
+     * @return the weight of the cache
+     */
+    public synchronized long getWeight(){
+        return weight;
+    }
+
+    //endregion
+
+    //region Internal Methods
+
+    /**
+     * Caches a calendar, replacing an older entry of the same file, and drops the least recently used entries
+     * while the cache is over its capacity. A calendar heavier than the whole capacity is not cached.
+     * @param key the canonical path of the file
+     * @param entry the entry
+     */
+    private synchronized void put(String key, Entry entry){
+        Entry old=entries.remove(key);
+        if(old!=null)
+            weight-=old.weight;
+
+        if(entry.weight>capacity)
+            return;
+
+        entries.put(key,entry);
+        weight+=entry.weight;
+
+        Iterator<Entry> leastRecentlyUsed=entries.values().iterator();
+        while(weight>capacity&&leastRecentlyUsed.hasNext()){
+            weight-=leastRecentlyUsed.next().weight;
+            leastRecentlyUsed.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the key of a file, its canonical path if it can be resolved.
+     * @param file the file
+     * @return the key
+     */
+    private static String keyOf(File file){
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException ignored) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    //endregion
+
+    //region Internal Classes
+
+    /**
+     * The version of a calendar file and its journal, as far as the file system tells.
+     * @param modified modification time of the file
+     * @param length size of the file
+     * @param journalModified modification time of the journal, 0 if there is none
+     * @param journalLength size of the journal, 0 if there is none
+     */
+    private record Stamp(long modified, long length, long journalModified, long journalLength) {
+
+        /**
+         * Reads the version of a calendar file.
+         * @param file the calendar file
+         * @return the version
+         */
+        private static Stamp of(File file){
+            File journalFile=CalendarJournal.journalFileOf(file);
+            return new Stamp(file.lastModified(),file.length(),journalFile.lastModified(),journalFile.length());
+        }
+    }
+
+    /**
+     * A cached calendar.
+     * @param calendar the calendar
+     * @param stamp the version of the file it was read from
+     * @param weight the number of events of the calendar, at least 1
+     */
+    private record Entry(PersonalCalendar calendar, Stamp stamp, long weight) {}
+
+    //endregion
+}
@@ -7,6 +7,7 @@ import project.exceptions.CalendarTimeException;
 import project.exceptions.InvalidTimeIntervalException;
 import project.models.parsers.LocalDateParser;
 import project.models.parsers.LocalTimeParser;
+import project.util.TimeEncoding;
 import project.util.adapters.LocalDateAdapter;
 import project.util.adapters.LocalTimeAdapter;
 
@@ -20,8 +21,6 @@ import java.time.Month;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
-import java.util.Objects;
-
 
 /**
  * Represents a calendar event.
@@ -30,8 +29,14 @@ import java.util.Objects;
  * calendar events, and provides various constructors and utility methods for this purpose.
  */
 @XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(propOrder={"name","date","note","endTime","startTime"})
 public class CalendarEvent  implements CalendarEventService, Comparable<CalendarEvent> {
 
+    /**
+     * Epoch day of an event without a date.
+     */
+    private static final int NO_DATE=Integer.MIN_VALUE;
+
     /**
      * The name of the event.
      */
@@ -39,23 +44,25 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
     private String name;
 
     /**
-     * The date of the event.
-     * This field is annotated with @XmlJavaTypeAdapter to enable XML marshalling and unmarshalling
-     * of LocalDate objects. By default, JAXB will treat fields as XML elements, but we want to
-     * treat this field as an XML attribute, so we use the XmlJavaTypeAdapter annotation to specify
-     * the adapter class to use.
+     * The date of the event as epoch day, or {@link #NO_DATE} before a date is set.
+     * The date is kept as a primitive and materialized by {@link #getDate()},
+     * which carries the XML mapping through the LocalDateAdapter.
      */
-    @XmlJavaTypeAdapter(LocalDateAdapter.class)
-    private LocalDate date;
+    @XmlTransient
+    private int epochDay;
 
+    /**
+     * The start time of the event as minute of day.
+     * Because we want single objects of start and end time itself we are using appropriate getters.
+     */
+    @XmlTransient
+    private short startMinute;
 
     /**
-     * Represents the start and end time of the event.
-     * This field is annotated with @XmlTransient to disable XML marshalling and unmarshalling.
-     * Because we want single objects of start and end time itsel we are using apropriete getters.
+     * The end time of the event as minute of day, {@link TimeEncoding#END_OF_DAY} stands for the end of the day.
      */
     @XmlTransient
-    private TimeInterval timeInterval;
+    private short endMinute;
 
     /**
      * Additional notes about the event.
@@ -77,9 +84,22 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      * JAXB marshal and unmarshal method requires default constructor for the element class.
      */
     public CalendarEvent() {
-        try {
-            timeInterval = new TimeInterval(LocalTime.MIN, LocalTime.MAX);
-        } catch (InvalidTimeIntervalException ignored){}
+        this.epochDay=NO_DATE;
+        this.endMinute=TimeEncoding.END_OF_DAY;
+    }
+
+    /**
+     * Constructs a copy of the given CalendarEvent, used to change a stored event without changing the snapshots
+     * which hold it, or to take over an event of a shared calendar into another one.
+     * @param event the event to copy
+     */
+    public CalendarEvent(CalendarEvent event) {
+        this.name=event.name;
+        this.epochDay=event.epochDay;
+        this.startMinute=event.startMinute;
+        this.endMinute=event.endMinute;
+        this.note=event.note;
+        this.isHoliday=event.isHoliday;
     }
 
     /**
@@ -103,8 +123,8 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
             }
         }
 
-        this.date = date;
-        timeInterval =new TimeInterval(startTime,endTime);
+        setDate(date);
+        setInterval(startTime,endTime);
         this.name=eventName;
         this.note=note;
 
@@ -131,8 +151,8 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
             }
         }
 
-        this.date=date;
-        timeInterval =new TimeInterval(startTime,LocalTime.MAX);
+        setDate(date);
+        setInterval(startTime,LocalTime.MAX);
 
     }
 
@@ -147,7 +167,7 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CalendarEvent event = (CalendarEvent) o;
-        return date.equals(event.date) && (getStartTime().equals(event.getStartTime())||getEndTime().equals(event.getEndTime()));
+        return epochDay==event.epochDay && (startMinute==event.startMinute||endMinute==event.endMinute);
     }
 
     /**
@@ -157,7 +177,7 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      */
     @Override
     public int hashCode() {
-        return Objects.hash(date, getStartTime(), getEndTime());
+        return (31*epochDay+startMinute)*31+endMinute;
     }
 
     /**
@@ -167,7 +187,7 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      */
     @Override
     public int compareTo(CalendarEvent o) {
-        return this.getStartTime().compareTo(o.getStartTime());
+        return Integer.compare(startMinute,o.startMinute);
     }
 
     /**
@@ -185,7 +205,7 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
             value=" work day";
 
 
-        return  String.format("%-25s", LocalDateParser.format(date) + value)+
+        return  String.format("%-25s", LocalDateParser.format(getDate()) + value)+
                 String.format("%-15s", LocalTimeParser.format(getStartTime()))+
                 String.format("%-15s", LocalTimeParser.format(getEndTime()))+
                 String.format("%-30s", name)+
@@ -203,18 +223,18 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
         if(this.equals(calendarEvent))
             return false;
 
-        if(calendarEvent.date.equals(this.date))
+        if(calendarEvent.epochDay==this.epochDay)
         {
-            if(calendarEvent.getStartTime().isAfter(this.getStartTime())&&calendarEvent.getStartTime().isBefore(this.getEndTime()))
+            if(calendarEvent.startMinute>this.startMinute&&calendarEvent.startMinute<this.endMinute)
                 return false;
 
-            if(calendarEvent.getEndTime().isAfter(this.getStartTime())&&calendarEvent.getEndTime().isBefore(this.getEndTime()))
+            if(calendarEvent.endMinute>this.startMinute&&calendarEvent.endMinute<this.endMinute)
                 return false;
 
-            if(this.getStartTime().isAfter(calendarEvent.getStartTime())&&this.getStartTime().isBefore(calendarEvent.getEndTime()))
+            if(this.startMinute>calendarEvent.startMinute&&this.startMinute<calendarEvent.endMinute)
                 return false;
 
-            return !this.getEndTime().isAfter(calendarEvent.getStartTime()) || !this.getEndTime().isBefore(calendarEvent.getEndTime());
+            return this.endMinute<=calendarEvent.startMinute || this.endMinute>=calendarEvent.endMinute;
         }
         return true;
     }
@@ -240,8 +260,10 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      * Returns the date of the event
      * @return a LocalDate object representing the event date
      */
+    @XmlElement(name="date")
+    @XmlJavaTypeAdapter(LocalDateAdapter.class)
     public LocalDate getDate() {
-        return date;
+        return epochDay==NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
     }
 
     /**
@@ -249,7 +271,15 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      * @param date a LocalDate object representing the event date
      */
     public void setDate(LocalDate date) {
-        this.date = date;
+        this.epochDay = date==null ? NO_DATE : Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * Returns the date of the event without materializing it
+     * @return the epoch day of the event date
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
     /**
@@ -259,7 +289,15 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
     @XmlElement(name="startTime")
     @XmlJavaTypeAdapter(LocalTimeAdapter.class)
     public LocalTime getStartTime() {
-        return timeInterval.getStartTime();
+        return TimeEncoding.toLocalTime(startMinute);
+    }
+
+    /**
+     * Returns the start time of the event without materializing it
+     * @return the minute of day the event starts at
+     */
+    public int getStartMinute() {
+        return startMinute;
     }
 
 
@@ -269,7 +307,10 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      * @throws InvalidTimeIntervalException if the new start time is after the current end time of the event
      */
     public void setStartTime(LocalTime startTime) throws InvalidTimeIntervalException {
-        timeInterval.setStartTime(startTime);
+        int minute=TimeEncoding.toMinuteOfDay(startTime);
+        if(minute>endMinute)
+            throw new InvalidTimeIntervalException();
+        this.startMinute=(short) minute;
     }
 
     /**
@@ -279,7 +320,15 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
     @XmlElement(name="endTime")
     @XmlJavaTypeAdapter(LocalTimeAdapter.class)
     public LocalTime getEndTime() {
-        return timeInterval.getEndTime();
+        return TimeEncoding.toLocalTime(endMinute);
+    }
+
+    /**
+     * Returns the end time of the event without materializing it
+     * @return the minute of day the event ends at, {@link TimeEncoding#END_OF_DAY} for the end of the day
+     */
+    public int getEndMinute() {
+        return endMinute;
     }
 
     /**
@@ -288,7 +337,10 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
      * @throws InvalidTimeIntervalException if the provided end time is invalid
      */
     public void setEndTime(LocalTime endTime) throws InvalidTimeIntervalException {
-        timeInterval.setEndTime(endTime);
+        int minute=TimeEncoding.toMinuteOfDay(endTime);
+        if(startMinute>minute)
+            throw new InvalidTimeIntervalException();
+        this.endMinute=(short) minute;
     }
 
     /**
@@ -324,5 +376,25 @@ public class CalendarEvent  implements CalendarEventService, Comparable<Calendar
     }
 
     //endregion
+
+    //region Internal Methods
+
+    /**
+     * Sets the start and end time of the event at once.
+     * @param startTime the start time of the event
+     * @param endTime the end time of the event
+     * @throws InvalidTimeIntervalException if the start time is after the end time
+     */
+    private void setInterval(LocalTime startTime, LocalTime endTime) throws InvalidTimeIntervalException {
+        int start=TimeEncoding.toMinuteOfDay(startTime);
+        int end=TimeEncoding.toMinuteOfDay(endTime);
+        if(start>end)
+            throw new InvalidTimeIntervalException();
+
+        this.startMinute=(short) start;
+        this.endMinute=(short) end;
+    }
+
+    //endregion
 }
 
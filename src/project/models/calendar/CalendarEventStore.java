@@ -0,0 +1,617 @@
+package project.models.calendar;
+
+import project.contracts.CalendarEventListener;
+import project.contracts.SegmentSource;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Storage engine of {@link PersonalCalendar}.
+ * Events are indexed by date and kept sorted by start time inside each day,
+ * so looking up a single date costs O(log D + k) and date ranges are walked day by day in order.
+ * The class is a {@link Set} itself, so it can be handed out wherever the calendar used to expose its HashSet.
+ * Every change, including removals through iterators, is reported to the registered {@link CalendarEventListener}s.
+ * <p>
+ * The store is safe for concurrent use and multi-versioned. Its contents are an immutable {@link CalendarSnapshot}
+ * held in an atomic reference: reads take the current snapshot and never lock, every change builds the next
+ * snapshot and publishes it with a compare-and-set. Writes lock one of {@link #LOCK_STRIPES} stripes chosen by the
+ * date, so writes of different dates run in parallel, and the check-then-add of a booking is made atomic by
+ * {@link #addIfCompatible(CalendarEvent)}. Listeners are notified while the stripe is held, so they see the changes
+ * of a date in order, but they must be safe for concurrent use themselves.
+ * <p>
+ * A store can be filled lazily from a {@link SegmentSource} by {@link #attachSegments(SegmentSource)}. Operations on
+ * dates then read only the months they touch and cold months are evicted again, see {@link SegmentTable}.
+ * Operations on the whole store, like {@link #snapshot()}, {@link #iterator()} and {@link #attach(Supplier)},
+ * read all remaining months first and leave them to be evicted again.
+ */
+public class CalendarEventStore extends AbstractSet<CalendarEvent> {
+
+    /**
+     * Number of write locks, the lock of a date is chosen by its epoch day.
+     */
+    private static final int LOCK_STRIPES=64;
+
+    /**
+     * The current version of the events.
+     */
+    private final AtomicReference<CalendarSnapshot> current;
+
+    /**
+     * Write locks of the dates.
+     */
+    private final ReentrantLock[] locks;
+
+    /**
+     * Listeners notified about every change of the stored events.
+     */
+    private final List<CalendarEventListener> listeners;
+
+    /**
+     * The months which are resident, when the store is filled lazily.
+     */
+    private final SegmentTable segments;
+
+    /**
+     * Constructs an empty store.
+     */
+    public CalendarEventStore() {
+        this.current=new AtomicReference<>(CalendarSnapshot.EMPTY);
+        this.locks=new ReentrantLock[LOCK_STRIPES];
+        this.listeners=new CopyOnWriteArrayList<>();
+        this.segments=new SegmentTable(current);
+
+        for(int i=0;i<LOCK_STRIPES;i++)
+            locks[i]=new ReentrantLock();
+    }
+
+    /**
+     * Constructs a store holding the given events.
+     * @param events the events to be stored
+     */
+    public CalendarEventStore(Collection<? extends CalendarEvent> events) {
+        this();
+        addAll(events);
+    }
+
+    /**
+     * Fills the store lazily from the given source: its months are read when an operation first touches them.
+     * The store must be empty.
+     * @param source the file to read the months from
+     */
+    public void attachSegments(SegmentSource source){
+        segments.attach(source);
+    }
+
+    /**
+     * Checks if all events of the store are in memory.
+     * @return false if some months of a lazily opened file were not read yet or were evicted
+     */
+    public boolean isResident(){
+        return segments.isResident();
+    }
+
+    /**
+     * Returns the current version of all events, reading the months which are not resident.
+     * The snapshot never changes, later changes of the store are published as new snapshots.
+     * @return the current snapshot
+     */
+    public CalendarSnapshot snapshot(){
+        return segments.readAll(current::get);
+    }
+
+    /**
+     * Returns the current version of the events in which the given range of dates is resident.
+     * Only the months of the range are read, so the snapshot may lack events of other months.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return the current snapshot
+     */
+    public CalendarSnapshot snapshot(LocalDate from, LocalDate to){
+        return segments.read(epochDayOf(from),epochDayOf(to),current::get);
+    }
+
+    /**
+     * Adds the event to the bucket of its date.
+     * @param event the event to be added
+     * @return true if the event was added, false if an event with the same date, start and end time is already stored
+     */
+    @Override
+    public boolean add(CalendarEvent event) {
+        return segments.read(event.getEpochDay(),event.getEpochDay(),()->{
+            ReentrantLock lock=lockOf(event.getEpochDay());
+            lock.lock();
+            try {
+                return addLocked(event);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Adds the event only if it is compatible with all stored events of its date.
+     * The check and the addition are done under the write lock of the date, so no other write can slip in between.
+     * @param event the event to be added
+     * @return the incompatible stored events ordered by start time, empty if the event was added
+     */
+    public List<CalendarEvent> addIfCompatible(CalendarEvent event) {
+        return segments.read(event.getEpochDay(),event.getEpochDay(),()->{
+            ReentrantLock lock=lockOf(event.getEpochDay());
+            lock.lock();
+            try {
+                List<CalendarEvent> conflicts=current.get().findConflicts(event);
+                if(conflicts.isEmpty()&&!addLocked(event))
+                    conflicts=List.of(current.get().getDay(event.getEpochDay()).find(event));
+                return conflicts;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Adds all events only if every one of them is compatible with the stored events of its date.
+     * The write locks of all dates of the events are held while they are checked and added,
+     * so either all events are added or none. The events must be compatible with each other.
+     * @param events the events to be added
+     * @return the given events which are incompatible with stored events, empty if all events were added
+     */
+    public List<CalendarEvent> addAllIfCompatible(Collection<CalendarEvent> events) {
+        if(events.isEmpty())
+            return new ArrayList<>();
+
+        BitSet stripes=new BitSet(LOCK_STRIPES);
+        int firstDay=Integer.MAX_VALUE;
+        int lastDay=Integer.MIN_VALUE;
+        for(CalendarEvent event:events){
+            stripes.set(stripeOf(event.getEpochDay()));
+            firstDay=Math.min(firstDay,event.getEpochDay());
+            lastDay=Math.max(lastDay,event.getEpochDay());
+        }
+
+        return segments.read(firstDay,lastDay,()->{
+            lockAll(stripes);
+            try {
+                List<CalendarEvent> incompatible=new ArrayList<>();
+                for(CalendarEvent event:events)
+                    if(!current.get().findConflicts(event).isEmpty())
+                        incompatible.add(event);
+
+                if(incompatible.isEmpty())
+                    for(CalendarEvent event:events)
+                        addLocked(event);
+
+                return incompatible;
+            } finally {
+                unlockAll(stripes);
+            }
+        });
+    }
+
+    /**
+     * Adds every event which is compatible with the stored events of its date, in one operation.
+     * The months of the events are read once and the write locks of all their dates are held while the events are
+     * checked and added in the given order, so each event is checked against the stored events and the events of the
+     * batch added before it. The events which are not added are returned with their conflicts.
+     * @param events the events to be added
+     * @return the incompatible stored events of every event which was not added, by identity of the event,
+     * empty if all events were added
+     */
+    public Map<CalendarEvent,List<CalendarEvent>> addEachIfCompatible(Collection<CalendarEvent> events) {
+        Map<CalendarEvent,List<CalendarEvent>> rejected=new IdentityHashMap<>();
+        if(events.isEmpty())
+            return rejected;
+
+        BitSet stripes=new BitSet(LOCK_STRIPES);
+        int firstDay=Integer.MAX_VALUE;
+        int lastDay=Integer.MIN_VALUE;
+        for(CalendarEvent event:events){
+            stripes.set(stripeOf(event.getEpochDay()));
+            firstDay=Math.min(firstDay,event.getEpochDay());
+            lastDay=Math.max(lastDay,event.getEpochDay());
+        }
+
+        return segments.read(firstDay,lastDay,()->{
+            lockAll(stripes);
+            try {
+                for(CalendarEvent event:events){
+                    List<CalendarEvent> conflicts=current.get().findConflicts(event);
+                    if(conflicts.isEmpty()&&!addLocked(event))
+                        conflicts=List.of(current.get().getDay(event.getEpochDay()).find(event));
+                    if(!conflicts.isEmpty())
+                        rejected.put(event,conflicts);
+                }
+                return rejected;
+            } finally {
+                unlockAll(stripes);
+            }
+        });
+    }
+
+    /**
+     * Replaces a stored event with a new one if the new event is compatible with all other stored events of its date.
+     * The write locks of both dates are held while the events are checked, removed and added.
+     * @param oldEvent the stored event
+     * @param newEvent the event replacing it
+     * @return the stored events, other than the old event, which are incompatible with the new event,
+     * empty if the event was replaced
+     */
+    public List<CalendarEvent> replaceIfCompatible(CalendarEvent oldEvent, CalendarEvent newEvent) {
+        BitSet stripes=new BitSet(LOCK_STRIPES);
+        stripes.set(stripeOf(oldEvent.getEpochDay()));
+        stripes.set(stripeOf(newEvent.getEpochDay()));
+
+        return segments.read(oldEvent.getEpochDay(),oldEvent.getEpochDay(),()->segments.read(newEvent.getEpochDay(),newEvent.getEpochDay(),()->{
+            lockAll(stripes);
+            try {
+                List<CalendarEvent> conflicts=new ArrayList<>(current.get().findConflicts(newEvent));
+                conflicts.removeIf(oldEvent::equals);
+
+                if(conflicts.isEmpty()&&removeLocked(oldEvent))
+                    addLocked(newEvent);
+                return conflicts;
+            } finally {
+                unlockAll(stripes);
+            }
+        }));
+    }
+
+    /**
+     * Removes the event with the same date, start and end time as the given one.
+     * @param o the event to be removed
+     * @return true if an event was removed, false otherwise
+     */
+    @Override
+    public boolean remove(Object o) {
+        if(!(o instanceof CalendarEvent event))
+            return false;
+
+        return segments.read(event.getEpochDay(),event.getEpochDay(),()->{
+            ReentrantLock lock=lockOf(event.getEpochDay());
+            lock.lock();
+            try {
+                return removeLocked(event);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Checks if an event with the same date, start and end time is stored.
+     * @param o the event to search for
+     * @return true if such event is stored
+     */
+    @Override
+    public boolean contains(Object o) {
+        if(!(o instanceof CalendarEvent event))
+            return false;
+        return segments.read(event.getEpochDay(),event.getEpochDay(),()->current.get().contains(event));
+    }
+
+    /**
+     * Removes all events from the store while holding all write locks.
+     */
+    @Override
+    public void clear() {
+        BitSet stripes=new BitSet(LOCK_STRIPES);
+        stripes.set(0,LOCK_STRIPES);
+
+        lockAll(stripes);
+        try {
+            if(!listeners.isEmpty()) {
+                super.clear();
+                return;
+            }
+
+            segments.detach();
+            current.updateAndGet(CalendarSnapshot::cleared);
+        } finally {
+            unlockAll(stripes);
+        }
+    }
+
+    /**
+     * Returns the number of stored events, including the months which are not resident.
+     * @return the number of stored events
+     */
+    @Override
+    public int size() {
+        return segments.size();
+    }
+
+    /**
+     * Checks if the store has no events, including the months which are not resident.
+     * @return true if the store is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Returns an iterator over the current snapshot of the events ordered by date and start time.
+     * Removals through the iterator are applied to the store.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<CalendarEvent> iterator() {
+        return new EventIterator(snapshot().iterator());
+    }
+
+    /**
+     * Returns the events of the given date ordered by start time.
+     * @param date the date to search
+     * @return a read-only snapshot of the events, empty if there are none
+     */
+    public List<CalendarEvent> getEventsOn(LocalDate date){
+        return snapshot(date,date).getEventsOn(date);
+    }
+
+    /**
+     * Returns the events between the given dates (both inclusive) ordered by date and start time.
+     * The result is a view of the current snapshot, no events are copied.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return a read-only collection of the events in the range
+     */
+    public Collection<CalendarEvent> getEventsBetween(LocalDate from, LocalDate to){
+        return snapshot(from,to).getEventsBetween(from,to);
+    }
+
+    /**
+     * Changes a stored event. Only the name, note and holiday flag may be changed this way,
+     * because the date and the times are the keys of the store. The change is applied to a copy of the event,
+     * which replaces it, so the snapshots taken before keep the old state.
+     * Listeners see the change as a removal of the old event followed by an addition of the new one.
+     * @param event the stored event
+     * @param change the change to apply
+     */
+    public void update(CalendarEvent event, Consumer<CalendarEvent> change){
+        segments.read(event.getEpochDay(),event.getEpochDay(),()->{
+            ReentrantLock lock=lockOf(event.getEpochDay());
+            lock.lock();
+            try {
+                DaySchedule day=current.get().getDay(event.getEpochDay());
+                CalendarEvent stored=day.find(event);
+                if(stored==null)
+                    return null;
+
+                CalendarEvent changed=new CalendarEvent(stored);
+                change.accept(changed);
+
+                publish(event.getEpochDay(),day.replace(changed),0);
+                fireRemoved(stored);
+                fireAdded(changed);
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Registers a listener for the changes of the store.
+     * @param listener the listener
+     */
+    public void addListener(CalendarEventListener listener){
+        listeners.add(listener);
+    }
+
+    /**
+     * Creates a listener which is built from the stored events and registers it, while holding all write locks,
+     * so that no change is missed or seen twice by the listener.
+     * @param factory creates the listener from the current events
+     * @param <T> type of the listener
+     * @return the registered listener
+     */
+    public <T extends CalendarEventListener> T attach(Supplier<T> factory){
+        BitSet stripes=new BitSet(LOCK_STRIPES);
+        stripes.set(0,LOCK_STRIPES);
+
+        return segments.readAll(()->{
+            lockAll(stripes);
+            try {
+                T listener=factory.get();
+                listeners.add(listener);
+                return listener;
+            } finally {
+                unlockAll(stripes);
+            }
+        });
+    }
+
+    /**
+     * Unregisters a listener.
+     * @param listener the listener
+     */
+    public void removeListener(CalendarEventListener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies the listeners that a date was marked as holiday.
+     * @param date the holiday date
+     */
+    void fireHolidayAdded(LocalDate date){
+        for(CalendarEventListener listener:listeners)
+            listener.holidayAdded(date);
+    }
+
+    /**
+     * Returns the stored events which are incompatible with the given event.
+     * Only the bucket of the event's date is searched, through the overlap index of {@link DaySchedule},
+     * so the query costs O(log D + log k) plus the number of candidates.
+     * @param event the event to check
+     * @return the incompatible events ordered by start time, empty if there are none
+     */
+    public List<CalendarEvent> findConflicts(CalendarEvent event){
+        return segments.read(event.getEpochDay(),event.getEpochDay(),()->current.get().findConflicts(event));
+    }
+
+    //region Internal Methods
+
+    /**
+     * Adds the event to the bucket of its date. The caller must hold the write lock of the date.
+     * @param event the event to be added
+     * @return true if the event was added, false if an event with the same date, start and end time is already stored
+     */
+    private boolean addLocked(CalendarEvent event){
+        DaySchedule day=current.get().getDay(event.getEpochDay());
+        DaySchedule changed=day.with(event);
+        if(changed==day)
+            return false;
+
+        publish(event.getEpochDay(),changed,1);
+        fireAdded(event);
+        return true;
+    }
+
+    /**
+     * Removes the event with the same date, start and end time as the given one. The caller must hold the write lock of the date.
+     * @param event the event to be removed
+     * @return true if an event was removed, false otherwise
+     */
+    private boolean removeLocked(CalendarEvent event){
+        DaySchedule day=current.get().getDay(event.getEpochDay());
+        CalendarEvent removed=day.find(event);
+        if(removed==null)
+            return false;
+
+        publish(event.getEpochDay(),day.without(removed),-1);
+        fireRemoved(removed);
+        return true;
+    }
+
+    /**
+     * Publishes the next version with the given day replaced. The caller must hold the write lock of the day,
+     * so only the writers of other days can publish concurrently and the compare-and-set is retried for them.
+     * The month of the day is no longer evicted, the source does not hold the change.
+     * @param epochDay the epoch day of the day
+     * @param day the new day
+     * @param sizeChange the change of the number of events
+     */
+    private void publish(int epochDay, DaySchedule day, int sizeChange){
+        current.updateAndGet(snapshot->snapshot.with(epochDay,day,sizeChange));
+        segments.changed(epochDay);
+    }
+
+    /**
+     * Converts a date to its epoch day.
+     * @param date the date
+     * @return the epoch day
+     */
+    private static int epochDayOf(LocalDate date){
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * Returns the lock stripe of the given date.
+     * @param epochDay the date as epoch day
+     * @return the index of the write lock of the date
+     */
+    private static int stripeOf(int epochDay){
+        return Math.floorMod(epochDay,LOCK_STRIPES);
+    }
+
+    /**
+     * Returns the write lock of the given date.
+     * @param epochDay the date as epoch day
+     * @return the write lock
+     */
+    private ReentrantLock lockOf(int epochDay){
+        return locks[stripeOf(epochDay)];
+    }
+
+    /**
+     * Acquires the given write locks in ascending order, so that threads locking several stripes cannot deadlock.
+     * @param stripes the indexes of the locks
+     */
+    private void lockAll(BitSet stripes){
+        for(int stripe=stripes.nextSetBit(0);stripe>=0;stripe=stripes.nextSetBit(stripe+1))
+            locks[stripe].lock();
+    }
+
+    /**
+     * Releases the given write locks.
+     * @param stripes the indexes of the locks
+     */
+    private void unlockAll(BitSet stripes){
+        for(int stripe=stripes.nextSetBit(0);stripe>=0;stripe=stripes.nextSetBit(stripe+1))
+            locks[stripe].unlock();
+    }
+
+    /**
+     * Notifies the listeners about an added event.
+     * @param event the added event
+     */
+    private void fireAdded(CalendarEvent event){
+        for(CalendarEventListener listener:listeners)
+            listener.eventAdded(event);
+    }
+
+    /**
+     * Notifies the listeners about a removed event.
+     * @param event the removed event
+     */
+    private void fireRemoved(CalendarEvent event){
+        for(CalendarEventListener listener:listeners)
+            listener.eventRemoved(event);
+    }
+
+    //endregion
+
+    //region Internal Classes
+
+    /**
+     * Iterator over a snapshot whose removals are applied to the store.
+     */
+    private final class EventIterator implements Iterator<CalendarEvent> {
+
+        /**
+         * Iterator of the snapshot.
+         */
+        private final Iterator<CalendarEvent> events;
+
+        /**
+         * The last returned event, null if it cannot be removed.
+         */
+        private CalendarEvent lastReturned;
+
+        /**
+         * Constructs an iterator over the given snapshot iterator.
+         * @param events iterator of the snapshot
+         */
+        private EventIterator(Iterator<CalendarEvent> events) {
+            this.events=events;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return events.hasNext();
+        }
+
+        @Override
+        public CalendarEvent next() {
+            lastReturned=events.next();
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if(lastReturned==null)
+                throw new IllegalStateException();
+
+            CalendarEventStore.this.remove(lastReturned);
+            lastReturned=null;
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,413 @@
+package project.models.calendar;
+
+import project.contracts.CalendarEventListener;
+import project.exceptions.InvalidTimeIntervalException;
+import project.exceptions.OperationException;
+import project.util.TimeEncoding;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Append-only write-ahead journal of a calendar file.
+ * The journal listens to the loaded calendar and encodes every change as a compact mutation record.
+ * Records are collected in memory and appended to a side file next to the snapshot with a single fsync when
+ * the calendar is saved, so a save costs the size of the changes instead of the size of the calendar.
+ * Opening a file replays its journal over the snapshot. Writing a full snapshot makes the journal obsolete and deletes it.
+ * <pre>
+ * add:     byte 4, int epoch day, short start minute, short end minute, boolean holiday, name, note
+ * remove:  byte 2, int epoch day, short start minute, short end minute
+ * holiday: byte 3, int epoch day
+ * </pre>
+ * Names and notes are written as a presence flag followed by the int length and the bytes of their UTF-8 encoding.
+ * Add records of type 1, with names and notes in modified UTF-8, are still replayed.
+ * Every record is encoded completely before it is appended to the pending records, so the journal only ever holds
+ * whole records. A record cut short by a crash is cut off the journal file before the next records are appended.
+ * The journal methods are synchronized, because changes of different dates are reported from different threads.
+ */
+public class CalendarJournal implements CalendarEventListener {
+
+    /**
+     * Extension appended to the snapshot file name to get the journal file.
+     */
+    public static final String EXTENSION=".journal";
+
+    /**
+     * Size of the journal file in bytes above which a save writes a full snapshot instead.
+     */
+    public static final long COMPACTION_THRESHOLD=4L*1024*1024;
+
+    //region Record Types
+    private static final byte ADD_MODIFIED_UTF8=1;
+    private static final byte REMOVE=2;
+    private static final byte HOLIDAY=3;
+    private static final byte ADD=4;
+    //endregion
+
+    /**
+     * The journal file.
+     */
+    private final File journalFile;
+
+    /**
+     * Records which are not written to the journal file yet.
+     */
+    private final ByteArrayOutputStream pendingRecords;
+
+    /**
+     * The record which is being encoded.
+     */
+    private final ByteArrayOutputStream record;
+
+    /**
+     * Encoder of the record which is being encoded.
+     */
+    private final DataOutputStream recordOutput;
+
+    /**
+     * Whether the journal file was checked for a record cut short by a crash.
+     */
+    private boolean tailChecked;
+
+    /**
+     * Constructs the journal of the given snapshot file.
+     * @param snapshotFile the calendar file
+     */
+    public CalendarJournal(File snapshotFile) {
+        this.journalFile=journalFileOf(snapshotFile);
+        this.pendingRecords=new ByteArrayOutputStream();
+        this.record=new ByteArrayOutputStream();
+        this.recordOutput=new DataOutputStream(record);
+    }
+
+    /**
+     * Appends an add record.
+     * @param calendarEvent the added event
+     */
+    @Override
+    public synchronized void eventAdded(CalendarEvent calendarEvent) {
+        try {
+            record.reset();
+            recordOutput.writeByte(ADD);
+            writeSlot(calendarEvent);
+            recordOutput.writeBoolean(calendarEvent.isHoliday());
+            writeString(calendarEvent.getName());
+            writeString(calendarEvent.getNote());
+            record.writeTo(pendingRecords);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a remove record.
+     * @param calendarEvent the removed event
+     */
+    @Override
+    public synchronized void eventRemoved(CalendarEvent calendarEvent) {
+        try {
+            record.reset();
+            recordOutput.writeByte(REMOVE);
+            writeSlot(calendarEvent);
+            record.writeTo(pendingRecords);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a holiday record.
+     * @param date the holiday date
+     */
+    @Override
+    public synchronized void holidayAdded(LocalDate date) {
+        try {
+            record.reset();
+            recordOutput.writeByte(HOLIDAY);
+            recordOutput.writeInt((int) date.toEpochDay());
+            record.writeTo(pendingRecords);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the pending records to the journal file and forces them to the disk with a single fsync.
+     * Before the first append, a record cut short by a crash is cut off the end of the journal file.
+     * @throws OperationException if the journal file cannot be written or is corrupted
+     */
+    public synchronized void flush() throws OperationException {
+        if(pendingRecords.size()==0)
+            return;
+
+        if(!tailChecked) {
+            truncateTornTail(journalFile);
+            tailChecked=true;
+        }
+
+        try (FileOutputStream output=new FileOutputStream(journalFile,true)) {
+            pendingRecords.writeTo(output);
+            output.getFD().sync();
+        } catch (IOException ignored) {
+            throw new OperationException("Journal cannot be saved "+journalFile.getAbsolutePath());
+        }
+
+        pendingRecords.reset();
+    }
+
+    /**
+     * Drops the records which are not written to the journal file yet.
+     */
+    public synchronized void discard(){
+        pendingRecords.reset();
+    }
+
+    /**
+     * Returns the size of the journal, including the records which are not written yet.
+     * @return the size in bytes
+     */
+    public synchronized long size(){
+        return journalFile.length()+pendingRecords.size();
+    }
+
+    /**
+     * Checks whether the journal grew enough to be compacted into a full snapshot.
+     * @return true if the journal is above {@link #COMPACTION_THRESHOLD}
+     */
+    public boolean needsCompaction(){
+        return size()>COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * Returns the journal file of the given snapshot file.
+     * @param snapshotFile the calendar file
+     * @return the journal file
+     */
+    public static File journalFileOf(File snapshotFile){
+        return new File(snapshotFile.getPath()+EXTENSION);
+    }
+
+    /**
+     * Deletes the journal file of the given snapshot, after a full snapshot was written.
+     * @param snapshotFile the calendar file
+     * @throws OperationException if the journal file exists and cannot be deleted
+     */
+    public static void delete(File snapshotFile) throws OperationException {
+        File journalFile=journalFileOf(snapshotFile);
+        if(journalFile.exists()&&!journalFile.delete())
+            throw new OperationException("Journal cannot be deleted "+journalFile.getAbsolutePath());
+    }
+
+    /**
+     * Replays the journal of the snapshot file, if there is one, over the calendar read from the snapshot.
+     * A record cut short by a crash ends the replay.
+     * @param snapshotFile the calendar file
+     * @param personalCalendar the calendar read from the snapshot
+     * @throws OperationException if the journal cannot be read or is corrupted
+     */
+    public static void replay(File snapshotFile, PersonalCalendar personalCalendar) throws OperationException {
+        File journalFile=journalFileOf(snapshotFile);
+        if(journalFile.exists())
+            readRecords(journalFile,personalCalendar);
+    }
+
+    //region Internal Methods
+
+    /**
+     * Writes the date, start and end time of the event.
+     * @param calendarEvent the event
+     * @throws IOException never, records are written to memory
+     */
+    private void writeSlot(CalendarEvent calendarEvent) throws IOException {
+        recordOutput.writeInt(calendarEvent.getEpochDay());
+        recordOutput.writeShort(calendarEvent.getStartMinute());
+        recordOutput.writeShort(calendarEvent.getEndMinute());
+    }
+
+    /**
+     * Writes an optional string as its UTF-8 bytes, prefixed by their number.
+     * @param value the string or null
+     * @throws IOException never, records are written to memory
+     */
+    private void writeString(String value) throws IOException {
+        recordOutput.writeBoolean(value!=null);
+        if(value!=null) {
+            byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+            recordOutput.writeInt(bytes.length);
+            recordOutput.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the records of a journal file and applies them to a calendar.
+     * A record cut short by a crash ends the reading.
+     * @param journalFile the journal file
+     * @param personalCalendar the calendar to apply the records to, null to only check the records
+     * @return the size of the complete records at the start of the file in bytes
+     * @throws OperationException if the journal cannot be read or is corrupted
+     */
+    private static long readRecords(File journalFile, PersonalCalendar personalCalendar) throws OperationException {
+        long complete=0;
+        try (CountingInputStream counter=new CountingInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+             DataInputStream input=new DataInputStream(counter)) {
+            while(true){
+                int type=input.read();
+                if(type<0)
+                    break;
+
+                LocalDate date=LocalDate.ofEpochDay(input.readInt());
+                switch (type) {
+                    case ADD, ADD_MODIFIED_UTF8 -> {
+                        CalendarEvent event = readSlot(input, date);
+                        event.setHoliday(input.readBoolean());
+                        event.setName(type==ADD ? readString(input) : readModifiedUtf8(input));
+                        event.setNote(type==ADD ? readString(input) : readModifiedUtf8(input));
+                        if(personalCalendar!=null)
+                            personalCalendar.addEvent(event);
+                    }
+                    case REMOVE -> {
+                        CalendarEvent event = readSlot(input, date);
+                        if(personalCalendar!=null)
+                            personalCalendar.remove(event);
+                    }
+                    case HOLIDAY -> {
+                        if(personalCalendar!=null)
+                            personalCalendar.addHoliday(date);
+                    }
+                    default -> throw new OperationException("Journal is corrupted "+journalFile.getAbsolutePath());
+                }
+                complete=counter.getCount();
+            }
+        } catch (EOFException ignored) {
+            // the last record was not completely written
+        } catch (IOException | DateTimeException | InvalidTimeIntervalException ignored) {
+            throw new OperationException("Cannot replay journal "+journalFile.getAbsolutePath());
+        }
+        return complete;
+    }
+
+    /**
+     * Cuts a record which was not completely written off the end of a journal file, so the next records
+     * are appended right after the last complete one.
+     * @param journalFile the journal file
+     * @throws OperationException if the journal cannot be read, truncated or is corrupted
+     */
+    private static void truncateTornTail(File journalFile) throws OperationException {
+        if(!journalFile.exists())
+            return;
+
+        long complete=readRecords(journalFile,null);
+        if(complete==journalFile.length())
+            return;
+
+        try (RandomAccessFile file=new RandomAccessFile(journalFile,"rw")) {
+            file.setLength(complete);
+        } catch (IOException ignored) {
+            throw new OperationException("Journal cannot be repaired "+journalFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads the start and end time of an event record.
+     * @param input the journal
+     * @param date the date of the record
+     * @return an event with the read date and times
+     * @throws IOException if the journal cannot be read
+     * @throws InvalidTimeIntervalException if the start time is after the end time
+     */
+    private static CalendarEvent readSlot(DataInputStream input, LocalDate date) throws IOException, InvalidTimeIntervalException {
+        CalendarEvent event=new CalendarEvent();
+        event.setDate(date);
+        int startMinute=input.readShort();
+        event.setEndTime(TimeEncoding.toLocalTime(input.readShort()));
+        event.setStartTime(TimeEncoding.toLocalTime(startMinute));
+        return event;
+    }
+
+    /**
+     * Reads an optional string written by {@link #writeString(String)}.
+     * @param input the journal
+     * @return the string or null
+     * @throws IOException if the journal cannot be read
+     */
+    private static String readString(DataInputStream input) throws IOException {
+        if(!input.readBoolean())
+            return null;
+
+        int length=input.readInt();
+        if(length<0)
+            throw new IOException("Negative string length");
+        byte[] bytes=input.readNBytes(length);
+        if(bytes.length<length)
+            throw new EOFException();
+        return new String(bytes,StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an optional string of an add record of type 1, in modified UTF-8.
+     * @param input the journal
+     * @return the string or null
+     * @throws IOException if the journal cannot be read
+     */
+    private static String readModifiedUtf8(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    //endregion
+
+    //region Internal Classes
+
+    /**
+     * Input stream which counts the bytes read through it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /**
+         * Number of bytes read so far.
+         */
+        private long count;
+
+        /**
+         * Constructs a counting stream.
+         * @param input the counted stream
+         */
+        private CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        /**
+         * Returns the number of bytes read so far.
+         * @return the count
+         */
+        private long getCount(){
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b=super.read();
+            if(b>=0)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read=super.read(b,off,len);
+            if(read>0)
+                count+=read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped=super.skip(n);
+            count+=skipped;
+            return skipped;
+        }
+    }
+
+    //endregion
+}
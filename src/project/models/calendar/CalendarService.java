@@ -2,17 +2,29 @@ package project.models.calendar;
 
 import project.contracts.FileParser;
 import project.exceptions.OperationException;
+import project.exceptions.UncheckedOperationException;
+import project.models.metrics.CalendarMetrics;
+import project.models.metrics.CommandMetrics;
+import project.models.metrics.InstrumentedParser;
+import project.models.parsers.BinaryParser;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * A service for importing and exporting calendar data to and from files.
  */
 public class CalendarService {
 
+    /**
+     * Seconds an idle thread of the loader executor is kept.
+     */
+    private static final long LOADER_KEEP_ALIVE_SECONDS=30;
+
     /**
      * The file that is currently loaded into the service. This file will be used for importing and exporting calendar data.
      */
@@ -31,6 +43,36 @@ public class CalendarService {
      */
     private FileParser<PersonalCalendar> parser;
 
+    /**
+     * The configured parser, measured into the parser metrics.
+     */
+    private FileParser<PersonalCalendar> instrumentedParser;
+
+    /**
+     * Parser for the files in the binary calendar format, measured into the parser metrics.
+     */
+    private final FileParser<PersonalCalendar> binaryParser;
+
+    /**
+     * Whether changes of the repository are written to a {@link CalendarJournal} instead of rewriting the whole file on save.
+     */
+    private boolean journaling;
+
+    /**
+     * The journal of the loaded file, null when journaling is off or no file is loaded.
+     */
+    private CalendarJournal journal;
+
+    /**
+     * Cache of the external calendars read by {@link #readCalendars(List, Function)}.
+     */
+    private final CalendarCache calendarCache;
+
+    /**
+     * Executor of the readers of external calendars, created on first use. Guarded by this service.
+     */
+    private ExecutorService loaderExecutor;
+
     /**
      * A service for importing and exporting calendar data to and from files.
      * @param repository file data is stored there
@@ -39,6 +81,9 @@ public class CalendarService {
     public CalendarService(PersonalCalendar repository, FileParser<PersonalCalendar> parser) {
         this.repository = repository;
         this.parser = parser;
+        this.instrumentedParser = new InstrumentedParser(parser);
+        this.binaryParser = new InstrumentedParser(new BinaryParser());
+        this.calendarCache = new CalendarCache(this::readCalendar,CalendarCache.DEFAULT_CAPACITY);
     }
 
     /**
@@ -46,15 +91,31 @@ public class CalendarService {
      * @throws OperationException If there is an error importing the data.
      */
     public void importToRepository() throws OperationException {
-        repository = parser.readFile(loadedFile);
+        repository = readCalendar(loadedFile);
+        attachJournal();
     }
 
     /**
-     * Exports calendar data from the repository to the loaded file.
+     * Exports calendar data from the repository to the loaded file as a full snapshot.
+     * The journal of the file becomes obsolete and is deleted.
      * @throws OperationException If there is an error exporting the data.
      */
     public void exportFromRepository() throws OperationException {
-        parser.writeFile(repository,loadedFile);
+        getParserFor(loadedFile).writeFile(repository,loadedFile);
+        CalendarJournal.delete(loadedFile);
+        attachJournal();
+    }
+
+    /**
+     * Saves the repository to the loaded file. In journal mode only the journal is flushed,
+     * unless it grew above {@link CalendarJournal#COMPACTION_THRESHOLD} and is compacted into a full snapshot.
+     * @throws OperationException If there is an error saving the data.
+     */
+    public void saveRepository() throws OperationException {
+        if(journal!=null&&!journal.needsCompaction())
+            journal.flush();
+        else
+            exportFromRepository();
     }
 
     /**
@@ -62,11 +123,141 @@ public class CalendarService {
      * @throws OperationException If there is an error creating or writing to the file.
      */
     public void createFileIfNotExist() throws OperationException {
-        parser.writeFile(repository,loadedFile);
+        exportFromRepository();
+    }
+
+    /**
+     * Reads a calendar file with the parser of its format and replays its journal, if there is one.
+     * @param file the calendar file
+     * @return the calendar stored in the file
+     * @throws OperationException If there is an error reading the file or its journal.
+     */
+    public PersonalCalendar readCalendar(File file) throws OperationException {
+        PersonalCalendar personalCalendar = getParserFor(file).readFile(file);
+        CalendarJournal.replay(file, personalCalendar);
+        return personalCalendar;
+    }
+
+    /**
+     * Reads several external calendar files concurrently and reduces every calendar with the given function on the thread
+     * that read it, so only the reduced results are kept. The files are read by the loader executor of the service,
+     * which has at most one thread per processor and is shared by all calls.
+     * The calendars come from the {@link CalendarCache} when their files have not changed since they were last read,
+     * they are shared and must not be changed by the reduction. The loader threads work for the command of the caller,
+     * so the bytes they read are counted for it.
+     * @param files the calendar files
+     * @param reduction the function applied to every read calendar, it must be safe to run concurrently
+     * @param <T> the type of the reduced results
+     * @return the reduced results in the order of the files
+     * @throws OperationException If there is an error reading one of the files.
+     */
+    public <T> List<T> readCalendars(List<File> files, Function<PersonalCalendar,T> reduction) throws OperationException {
+        if(files.size()<=1){
+            List<T> results=new ArrayList<>(files.size());
+            for(File file:files)
+                results.add(reduction.apply(calendarCache.get(file)));
+            return results;
+        }
+
+        ExecutorService executor=loaderExecutor();
+        List<Future<T>> futures=new ArrayList<>(files.size());
+        try {
+            CommandMetrics command=CalendarMetrics.current();
+            for(File file:files)
+                futures.add(executor.submit(() -> {
+                    CommandMetrics previous=CalendarMetrics.enter(command);
+                    try {
+                        return reduction.apply(calendarCache.get(file));
+                    } finally {
+                        CalendarMetrics.exit(previous);
+                    }
+                }));
+
+            List<T> results=new ArrayList<>(files.size());
+            for(Future<T> future:futures)
+                results.add(future.get());
+            return results;
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof OperationException operationException)
+                throw operationException;
+            if(e.getCause() instanceof UncheckedOperationException uncheckedOperationException)
+                throw uncheckedOperationException.getCause();
+            throw new OperationException("Cannot read calendars: "+e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationException("Reading of the calendars was interrupted.");
+        } finally {
+            for(Future<T> future:futures)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Returns the executor of the readers of external calendars, creating it on first use.
+     * It runs at most one daemon thread per processor, idle threads end after {@link #LOADER_KEEP_ALIVE_SECONDS}.
+     * @return the loader executor
+     */
+    private synchronized ExecutorService loaderExecutor() {
+        if(loaderExecutor==null) {
+            int threads=Runtime.getRuntime().availableProcessors();
+            AtomicInteger threadNumber=new AtomicInteger();
+            ThreadPoolExecutor executor=new ThreadPoolExecutor(threads,threads,LOADER_KEEP_ALIVE_SECONDS,TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),runnable->{
+                        Thread thread=new Thread(runnable,"calendar-loader-"+threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            loaderExecutor=executor;
+        }
+        return loaderExecutor;
+    }
+
+    /**
+     * Returns the parser for the format of the given file.
+     * Files with the {@link BinaryParser#EXTENSION} extension are binary calendars, every other file is parsed as XML
+     * with the configured parser. The returned parsers are measured into the parser metrics.
+     * @param file the file to be read or written
+     * @return the parser for the file
+     */
+    public FileParser<PersonalCalendar> getParserFor(File file) {
+        if(BinaryParser.isBinaryFile(file))
+            return binaryParser;
+        return instrumentedParser;
+    }
+
+    /**
+     * Starts a new journal of the loaded file which follows the repository, if journaling is on.
+     * Changes which were not flushed to the previous journal are dropped.
+     */
+    private void attachJournal() {
+        detachJournal();
+        if(!journaling||repository==null||loadedFile==null)
+            return;
+
+        journal=new CalendarJournal(loadedFile);
+        repository.addListener(journal);
+    }
+
+    /**
+     * Stops the journal of the loaded file from following the repository.
+     */
+    private void detachJournal() {
+        if(journal!=null&&repository!=null)
+            repository.removeListener(journal);
+        journal=null;
     }
 
     //region Setters and Getters
 
+    /**
+     * Gets the cache of the external calendars.
+     * @return The calendar cache.
+     */
+    public CalendarCache getCalendarCache() {
+        return calendarCache;
+    }
+
     /**
      * Gets the currently loaded file.
      * @return The loaded file.
@@ -96,6 +287,7 @@ public class CalendarService {
      * @param repository The repository to use.
      */
     public void setRepository(PersonalCalendar repository) {
+        detachJournal();
         this.repository = repository;
     }
 
@@ -107,5 +299,31 @@ public class CalendarService {
         return parser;
     }
 
+    /**
+     * Sets the file parser used for importing and exporting calendar data,
+     * for example the streaming {@link project.models.parsers.StaxParser} instead of the JAXB based one.
+     * @param parser The file parser to use.
+     */
+    public void setParser(FileParser<PersonalCalendar> parser) {
+        this.parser = parser;
+        this.instrumentedParser = new InstrumentedParser(parser);
+    }
+
+    /**
+     * Checks whether the journal mode is on.
+     * @return true if changes are journaled
+     */
+    public boolean isJournaling() {
+        return journaling;
+    }
+
+    /**
+     * Turns the journal mode on or off. It takes effect when the next file is opened.
+     * @param journaling true to journal changes instead of rewriting the whole file on save
+     */
+    public void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+    }
+
     //endregion
 }
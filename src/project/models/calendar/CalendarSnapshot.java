@@ -0,0 +1,349 @@
+package project.models.calendar;
+
+import project.models.metrics.CalendarMetrics;
+import project.models.metrics.CommandMetrics;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * An immutable version of the events of a {@link PersonalCalendar}.
+ * Writers of the calendar never change a snapshot, they build the next version by copying the path to the changed
+ * day in a {@link DayTrie} and publish it atomically, so a query that holds a snapshot reads one consistent version
+ * without locking, for as long as it needs, while bookings go on.
+ * The snapshot is a read-only collection of its events ordered by date and start time.
+ * Changes of events are published as new event objects too, so the events of a snapshot do not change either.
+ */
+public final class CalendarSnapshot extends AbstractCollection<CalendarEvent> {
+
+    /**
+     * Number of events above which {@link #scan} splits the work over the common fork/join pool.
+     * It can be set with the system property {@code calendar.parallelThreshold}.
+     */
+    public static final int PARALLEL_THRESHOLD=Integer.getInteger("calendar.parallelThreshold",1<<16);
+
+    /**
+     * Smallest number of events reduced by a single task of a parallel scan.
+     */
+    private static final int MIN_CHUNK_SIZE=1024;
+
+    /**
+     * Number of chunks a parallel scan aims to give every worker of the pool, so idle workers can steal.
+     */
+    private static final int CHUNKS_PER_WORKER=4;
+
+    /**
+     * The first version, without events.
+     */
+    static final CalendarSnapshot EMPTY=new CalendarSnapshot(DayTrie.EMPTY,0,0);
+
+    /**
+     * The days of the version.
+     */
+    private final DayTrie days;
+
+    /**
+     * Number of events of the version.
+     */
+    private final int size;
+
+    /**
+     * Number of changes made to the calendar before this version.
+     */
+    private final long version;
+
+    /**
+     * Constructs a snapshot.
+     * @param days the days of the version
+     * @param size the number of events
+     * @param version the version number
+     */
+    private CalendarSnapshot(DayTrie days, int size, long version) {
+        this.days=days;
+        this.size=size;
+        this.version=version;
+    }
+
+    /**
+     * Returns the next version with the given day replaced.
+     * @param epochDay the epoch day of the day
+     * @param day the new day, empty to remove the day
+     * @param sizeChange the change of the number of events
+     * @return the next version
+     */
+    CalendarSnapshot with(int epochDay, DaySchedule day, int sizeChange){
+        return new CalendarSnapshot(days.with(DayTrie.keyOf(epochDay),day),size+sizeChange,version+1);
+    }
+
+    /**
+     * Returns the next version without events.
+     * @return the next version
+     */
+    CalendarSnapshot cleared(){
+        return new CalendarSnapshot(DayTrie.EMPTY,0,version+1);
+    }
+
+    /**
+     * Returns the day of the given epoch day.
+     * @param epochDay the epoch day
+     * @return the day, empty if it has no events
+     */
+    DaySchedule getDay(int epochDay){
+        DaySchedule day=days.get(DayTrie.keyOf(epochDay));
+        return day==null ? DaySchedule.EMPTY : day;
+    }
+
+    /**
+     * Returns the number of changes made to the calendar before this version.
+     * A snapshot taken later has a greater version if and only if the calendar has changed in between.
+     * @return the version number
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * Returns the events of the given date ordered by start time.
+     * @param date the date to search
+     * @return a read-only list of the events, empty if there are none
+     */
+    public List<CalendarEvent> getEventsOn(LocalDate date){
+        DaySchedule day=getDay(Math.toIntExact(date.toEpochDay()));
+        CalendarMetrics.scanned(day.size());
+        return day.asList();
+    }
+
+    /**
+     * Returns the events between the given dates (both inclusive) ordered by date and start time.
+     * The result is a view of this snapshot, no events are copied.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return a read-only collection of the events in the range
+     */
+    public Collection<CalendarEvent> getEventsBetween(LocalDate from, LocalDate to){
+        return new EventsOfDays(DayTrie.keyOf(Math.toIntExact(from.toEpochDay())),DayTrie.keyOf(Math.toIntExact(to.toEpochDay())));
+    }
+
+    /**
+     * Returns the events of this snapshot which are incompatible with the given event.
+     * Only the events of the same date are searched through the per-day overlap index.
+     * @param event the event to check
+     * @return the incompatible events ordered by start time, empty if there are none
+     */
+    public List<CalendarEvent> findConflicts(CalendarEvent event){
+        DaySchedule day=getDay(event.getEpochDay());
+        if(day.isEmpty())
+            return Collections.emptyList();
+
+        CalendarMetrics.scanned(day.size());
+        List<CalendarEvent> conflicts=new ArrayList<>();
+        day.collectConflicts(event,conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Reduces all events of this snapshot, see {@link #scan(LocalDate, LocalDate, Supplier, BiConsumer, BinaryOperator)}.
+     * @param newChunk creates the empty result of a chunk
+     * @param accumulator adds an event to the result of its chunk
+     * @param combiner combines the results of two consecutive chunks, the earlier one first
+     * @param <A> the type of the results
+     * @return the result of all events
+     */
+    public <A> A scan(Supplier<A> newChunk, BiConsumer<A,CalendarEvent> accumulator, BinaryOperator<A> combiner){
+        return scan(0,Integer.toUnsignedLong(-1),newChunk,accumulator,combiner);
+    }
+
+    /**
+     * Reduces the events between the given dates (both inclusive).
+     * The days are split into chunks of consecutive days, every chunk is accumulated into its own result in date and
+     * start time order and the results are combined in the same order, so for example lists of matches can simply be
+     * concatenated. Above {@link #PARALLEL_THRESHOLD} events the chunks are reduced in parallel on the common
+     * fork/join pool, smaller snapshots are reduced as one chunk on the calling thread.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param newChunk creates the empty result of a chunk
+     * @param accumulator adds an event to the result of its chunk, it must be safe to run concurrently for different results
+     * @param combiner combines the results of two consecutive chunks, the earlier one first
+     * @param <A> the type of the results
+     * @return the result of the events in the range
+     */
+    public <A> A scan(LocalDate from, LocalDate to, Supplier<A> newChunk, BiConsumer<A,CalendarEvent> accumulator, BinaryOperator<A> combiner){
+        return scan(DayTrie.keyOf(Math.toIntExact(from.toEpochDay())),DayTrie.keyOf(Math.toIntExact(to.toEpochDay())),newChunk,accumulator,combiner);
+    }
+
+    /**
+     * Checks if an event with the same date, start and end time is in this snapshot.
+     * @param o the event to search for
+     * @return true if such event is in this snapshot
+     */
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof CalendarEvent event&&getDay(event.getEpochDay()).indexOf(event)>=0;
+    }
+
+    /**
+     * Returns the number of events of this snapshot.
+     * @return the number of events
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if this snapshot has no events.
+     * @return true if this snapshot is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return days.isEmpty();
+    }
+
+    /**
+     * Returns a read-only iterator over all events ordered by date and start time.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<CalendarEvent> iterator() {
+        return new EventIterator(days.ceilingKey(0),Integer.toUnsignedLong(-1));
+    }
+
+    //region Internal Methods
+
+    /**
+     * Reduces the events of the days between the given keys. The events are counted as scanned for the command of
+     * the calling thread, also when worker threads reduce them.
+     * @param fromKey key of the first day
+     * @param toKey key of the last day
+     * @param newChunk creates the empty result of a chunk
+     * @param accumulator adds an event to the result of its chunk
+     * @param combiner combines the results of two consecutive chunks
+     * @param <A> the type of the results
+     * @return the result of the events in the range
+     */
+    private <A> A scan(long fromKey, long toKey, Supplier<A> newChunk, BiConsumer<A,CalendarEvent> accumulator, BinaryOperator<A> combiner){
+        int chunkSize= size<=PARALLEL_THRESHOLD ? Integer.MAX_VALUE
+                : Math.max(MIN_CHUNK_SIZE,size/(CHUNKS_PER_WORKER*ForkJoinPool.getCommonPoolParallelism()));
+
+        CommandMetrics metrics=CalendarMetrics.current();
+        return days.scan(fromKey,toKey,chunkSize,newChunk,(result,day)->{
+            for(int i=0;i<day.size();i++)
+                accumulator.accept(result,day.get(i));
+            if(metrics!=null)
+                metrics.addEventsScanned(day.size());
+        },combiner);
+    }
+
+    //endregion
+
+    //region Internal Classes
+
+    /**
+     * Collection over the events of a range of days of this snapshot.
+     */
+    private final class EventsOfDays extends AbstractCollection<CalendarEvent> {
+
+        /**
+         * Key of the first day of the range.
+         */
+        private final long fromKey;
+
+        /**
+         * Key of the last day of the range.
+         */
+        private final long toKey;
+
+        /**
+         * Constructs a collection over the given days.
+         * @param fromKey key of the first day
+         * @param toKey key of the last day
+         */
+        private EventsOfDays(long fromKey, long toKey) {
+            this.fromKey=fromKey;
+            this.toKey=toKey;
+        }
+
+        @Override
+        public Iterator<CalendarEvent> iterator() {
+            return new EventIterator(days.ceilingKey(fromKey),toKey);
+        }
+
+        @Override
+        public int size() {
+            int count=0;
+            for(long key=days.ceilingKey(fromKey);key!=DayTrie.NO_KEY&&key<=toKey;key=days.ceilingKey(key+1))
+                count+=days.get(key).size();
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            long first=days.ceilingKey(fromKey);
+            return first==DayTrie.NO_KEY||first>toKey;
+        }
+    }
+
+    /**
+     * Iterator that walks the days of a key range in order and the events of every day by start time.
+     */
+    private final class EventIterator implements Iterator<CalendarEvent> {
+
+        /**
+         * Key of the last day to iterate.
+         */
+        private final long toKey;
+
+        /**
+         * Key of the day which is currently iterated, {@link DayTrie#NO_KEY} when the iteration has ended.
+         */
+        private long currentKey;
+
+        /**
+         * The day which is currently iterated.
+         */
+        private DaySchedule currentDay;
+
+        /**
+         * Position of the next event in the current day.
+         */
+        private int nextIndex;
+
+        /**
+         * Constructs an iterator from the given day.
+         * @param firstKey key of the first day with events, or {@link DayTrie#NO_KEY}
+         * @param toKey key of the last day to iterate
+         */
+        private EventIterator(long firstKey, long toKey) {
+            this.toKey=toKey;
+            this.currentKey= firstKey>toKey ? DayTrie.NO_KEY : firstKey;
+            this.currentDay= currentKey==DayTrie.NO_KEY ? DaySchedule.EMPTY : days.get(currentKey);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentKey!=DayTrie.NO_KEY;
+        }
+
+        @Override
+        public CalendarEvent next() {
+            if(currentKey==DayTrie.NO_KEY)
+                throw new NoSuchElementException();
+
+            CalendarEvent event=currentDay.get(nextIndex++);
+            if(nextIndex==currentDay.size()){
+                CalendarMetrics.scanned(nextIndex);
+                long nextKey=days.ceilingKey(currentKey+1);
+                currentKey= nextKey>toKey ? DayTrie.NO_KEY : nextKey;
+                currentDay= currentKey==DayTrie.NO_KEY ? DaySchedule.EMPTY : days.get(currentKey);
+                nextIndex=0;
+            }
+            return event;
+        }
+    }
+
+    //endregion
+}
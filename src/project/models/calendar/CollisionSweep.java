@@ -0,0 +1,88 @@
+package project.models.calendar;
+
+import java.util.*;
+
+/**
+ * Finds the collisions between two groups of {@link CalendarEvent}s with a single sweep line.
+ * Both groups are ordered by date and start time and walked together. Every event is only checked against the
+ * events of the other group which are still active, that is on the same date and not ended before it starts,
+ * so the whole search costs O((N+M) log(N+M)) plus the number of collisions instead of O(N*M).
+ */
+public final class CollisionSweep {
+
+    /**
+     * Chronological order of events: by date, then by start time and end time.
+     */
+    public static final Comparator<CalendarEvent> CHRONOLOGICAL=Comparator.comparingInt(CalendarEvent::getEpochDay).thenComparing(DaySchedule.ORDER);
+
+    /**
+     * A private constructor because we don't want initializations of this class.
+     */
+    private CollisionSweep(){}
+
+    /**
+     * Finds every pair of incompatible events where the first event is from the first group and the second one is from the second group.
+     * Compatibility is decided by {@link CalendarEvent#checkCompatibility(CalendarEvent)}.
+     * @param firstEvents the events of the first group, for example the loaded calendar
+     * @param secondEvents the events of the second group, for example the calendar being merged
+     * @return a map from every colliding event of the first group to the events of the second group it collides with,
+     * ordered by the sweep; empty if there are no collisions
+     */
+    public static Map<CalendarEvent,List<CalendarEvent>> findCollisions(Collection<CalendarEvent> firstEvents, Collection<CalendarEvent> secondEvents){
+        List<CalendarEvent> first=sorted(firstEvents);
+        List<CalendarEvent> second=sorted(secondEvents);
+
+        Map<CalendarEvent,List<CalendarEvent>> collisionMap=new LinkedHashMap<>();
+        List<CalendarEvent> activeFirst=new ArrayList<>();
+        List<CalendarEvent> activeSecond=new ArrayList<>();
+
+        int i=0;
+        int j=0;
+        while(i<first.size()||j<second.size()){
+            boolean fromFirst= j>=second.size() || (i<first.size() && CHRONOLOGICAL.compare(first.get(i),second.get(j))<=0);
+            CalendarEvent event= fromFirst ? first.get(i++) : second.get(j++);
+
+            expire(activeFirst,event);
+            expire(activeSecond,event);
+
+            for(CalendarEvent other: fromFirst ? activeSecond : activeFirst){
+                if(event.checkCompatibility(other))
+                    continue;
+
+                if(fromFirst)
+                    collisionMap.computeIfAbsent(event,key->new ArrayList<>()).add(other);
+                else
+                    collisionMap.computeIfAbsent(other,key->new ArrayList<>()).add(event);
+            }
+
+            (fromFirst ? activeFirst : activeSecond).add(event);
+        }
+
+        return collisionMap;
+    }
+
+    //region Internal Methods
+
+    /**
+     * Returns the events in chronological order. Sorting an already ordered store is linear.
+     * @param events the events to sort
+     * @return a new sorted list of the events
+     */
+    private static List<CalendarEvent> sorted(Collection<CalendarEvent> events){
+        List<CalendarEvent> list=new ArrayList<>(events);
+        list.sort(CHRONOLOGICAL);
+        return list;
+    }
+
+    /**
+     * Drops the active events which can not collide with the current event or any event after it:
+     * the ones from an earlier date and the ones which end before the current event starts.
+     * @param active the active events of one group
+     * @param current the event the sweep line is at
+     */
+    private static void expire(List<CalendarEvent> active, CalendarEvent current){
+        active.removeIf(event -> event.getEpochDay()!=current.getEpochDay() || event.getEndMinute()<current.getStartMinute());
+    }
+
+    //endregion
+}
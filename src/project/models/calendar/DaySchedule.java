@@ -0,0 +1,251 @@
+package project.models.calendar;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds the events of a single date in an array kept sorted by start time and then by end time.
+ * It is the per-day bucket of {@link CalendarSnapshot}.
+ * The sorted events are augmented with the latest end time of every range of positions, kept as an implicit binary tree
+ * over the array, which makes it an interval tree: a conflict query visits only the subtrees holding an event which
+ * starts before the queried event ends and ends after it starts, so it costs O(log n) per conflict found,
+ * however long the other events of the day are.
+ * A day schedule is immutable, every change returns a new schedule, so it can be shared by all snapshots
+ * which contain the same version of the day.
+ */
+final class DaySchedule {
+
+    /**
+     * Order of the events inside the day. Two events with the same start and end time are considered the same slot,
+     * which matches the equality used by the former {@link java.util.HashSet} storage.
+     */
+    static final Comparator<CalendarEvent> ORDER =Comparator.comparingInt(CalendarEvent::getStartMinute).thenComparingInt(CalendarEvent::getEndMinute);
+
+    /**
+     * A day without events.
+     */
+    static final DaySchedule EMPTY=new DaySchedule(new CalendarEvent[0]);
+
+    /**
+     * Sorted events of the day, never modified.
+     */
+    private final CalendarEvent[] events;
+
+    /**
+     * Number of leaves of the end time tree, the smallest power of two not below the number of events.
+     */
+    private final int leaves;
+
+    /**
+     * Latest end minute of the events below every node of an implicit binary tree over the positions of the events.
+     * Node 1 is the root, the children of node i are 2i and 2i+1 and the leaf of position p is node leaves+p.
+     * Leaves without an event hold -1.
+     */
+    private final int[] maxEnds;
+
+    /**
+     * Constructs a day schedule of the given events and builds its end time tree.
+     * @param events the events sorted by {@link #ORDER}
+     */
+    private DaySchedule(CalendarEvent[] events) {
+        this(events,buildMaxEnds(events));
+    }
+
+    /**
+     * Constructs a day schedule of the given events with an end time tree built for events with the same end times.
+     * @param events the events sorted by {@link #ORDER}
+     * @param maxEnds the end time tree of the events
+     */
+    private DaySchedule(CalendarEvent[] events, int[] maxEnds) {
+        this.events=events;
+        this.maxEnds=maxEnds;
+        this.leaves=maxEnds.length/2;
+    }
+
+    /**
+     * Binary searches for the slot of the given event.
+     * @param event the event to search for
+     * @return the index of the event if present, otherwise (-(insertion point) - 1)
+     */
+    int indexOf(CalendarEvent event){
+        return Arrays.binarySearch(events,event,ORDER);
+    }
+
+    /**
+     * Returns the day with the event inserted.
+     * @param event the event to insert
+     * @return the new day, or this day if it already holds an event with the same start and end time
+     */
+    DaySchedule with(CalendarEvent event){
+        int index=indexOf(event);
+        if(index>=0)
+            return this;
+
+        index=-index-1;
+        CalendarEvent[] inserted=new CalendarEvent[events.length+1];
+        System.arraycopy(events,0,inserted,0,index);
+        inserted[index]=event;
+        System.arraycopy(events,index,inserted,index+1,events.length-index);
+
+        return new DaySchedule(inserted);
+    }
+
+    /**
+     * Returns the day without the event with the same start and end time as the given one.
+     * @param event the event to remove
+     * @return the new day, or this day if there is no such event
+     */
+    DaySchedule without(CalendarEvent event){
+        int index=indexOf(event);
+        if(index<0)
+            return this;
+        if(events.length==1)
+            return EMPTY;
+
+        CalendarEvent[] remaining=new CalendarEvent[events.length-1];
+        System.arraycopy(events,0,remaining,0,index);
+        System.arraycopy(events,index+1,remaining,index,remaining.length-index);
+
+        return new DaySchedule(remaining);
+    }
+
+    /**
+     * Returns the day with the event of the same slot as the replacement replaced by it.
+     * The replacement must have the same start and end time as the replaced event.
+     * @param replacement the new version of the event
+     * @return the new day, or this day if there is no event in the slot of the replacement
+     */
+    DaySchedule replace(CalendarEvent replacement){
+        int index=indexOf(replacement);
+        if(index<0)
+            return this;
+
+        CalendarEvent[] replaced=events.clone();
+        replaced[index]=replacement;
+        return new DaySchedule(replaced,maxEnds);
+    }
+
+    /**
+     * Returns the event with the same start and end time as the given one.
+     * @param event the event to search for
+     * @return the event of the day, or null if there is no such event
+     */
+    CalendarEvent find(CalendarEvent event){
+        int index=indexOf(event);
+        return index<0 ? null : events[index];
+    }
+
+    /**
+     * Collects the events of the day which are incompatible with the given event.
+     * Compatibility is decided by {@link CalendarEvent#checkCompatibility(CalendarEvent)}, only the candidates
+     * which start at or before the end of the event and end at or after its start are checked. They are found by
+     * descending the end time tree over the events starting at or before the end, skipping every subtree whose
+     * events all end before the start. The conflicts are added in the order of the day.
+     * @param event the event to check
+     * @param conflicts the collection the incompatible events are added to
+     */
+    void collectConflicts(CalendarEvent event, Collection<CalendarEvent> conflicts){
+        int candidates=firstStartingFrom(event.getEndMinute()+1);
+        if(candidates>0)
+            collectConflicts(1,0,leaves,candidates,event,conflicts);
+    }
+
+    /**
+     * Returns the event at the given position.
+     * @param index position of the event
+     * @return the event
+     */
+    CalendarEvent get(int index){
+        return events[index];
+    }
+
+    /**
+     * Returns the number of events in the day.
+     * @return the number of events
+     */
+    int size(){
+        return events.length;
+    }
+
+    /**
+     * Checks if the day holds no events.
+     * @return true if the day is empty
+     */
+    boolean isEmpty(){
+        return events.length==0;
+    }
+
+    /**
+     * Returns a read-only list of the events ordered by start time.
+     * @return the ordered events of the day
+     */
+    List<CalendarEvent> asList(){
+        return Collections.unmodifiableList(Arrays.asList(events));
+    }
+
+    //region Internal Methods
+
+    /**
+     * Binary searches for the first event which starts at or after the given time.
+     * @param minuteOfDay the time as minute of day
+     * @return the position of the first such event, or the size of the day if there is none
+     */
+    private int firstStartingFrom(int minuteOfDay){
+        int low=0;
+        int high=events.length;
+        while(low<high){
+            int middle=(low+high)>>>1;
+            if(events[middle].getStartMinute()<minuteOfDay)
+                low=middle+1;
+            else
+                high=middle;
+        }
+        return low;
+    }
+
+    /**
+     * Collects the incompatible events below a node of the end time tree.
+     * @param node the node
+     * @param firstPosition the first position below the node
+     * @param endPosition the position after the last one below the node
+     * @param candidates the number of events which start at or before the end of the event
+     * @param event the event to check
+     * @param conflicts the collection the incompatible events are added to
+     */
+    private void collectConflicts(int node, int firstPosition, int endPosition, int candidates, CalendarEvent event, Collection<CalendarEvent> conflicts){
+        if(firstPosition>=candidates||maxEnds[node]<event.getStartMinute())
+            return;
+
+        if(node>=leaves) {
+            CalendarEvent candidate=events[firstPosition];
+            if(!event.checkCompatibility(candidate))
+                conflicts.add(candidate);
+            return;
+        }
+
+        int middle=(firstPosition+endPosition)>>>1;
+        collectConflicts(2*node,firstPosition,middle,candidates,event,conflicts);
+        collectConflicts(2*node+1,middle,endPosition,candidates,event,conflicts);
+    }
+
+    /**
+     * Builds the end time tree of the events.
+     * @param events the events sorted by {@link #ORDER}
+     * @return the latest end minute below every node, see {@link #maxEnds}
+     */
+    private static int[] buildMaxEnds(CalendarEvent[] events){
+        int leaves=Math.max(1,Integer.highestOneBit(Math.max(1,events.length)-1)<<1);
+        int[] maxEnds=new int[2*leaves];
+        Arrays.fill(maxEnds,leaves,2*leaves,-1);
+        for(int i=0;i<events.length;i++)
+            maxEnds[leaves+i]=events[i].getEndMinute();
+        for(int node=leaves-1;node>=1;node--)
+            maxEnds[node]=Math.max(maxEnds[2*node],maxEnds[2*node+1]);
+        return maxEnds;
+    }
+
+    //endregion
+}
@@ -0,0 +1,389 @@
+package project.models.calendar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Persistent map from epoch days to the {@link DaySchedule}s of a {@link CalendarSnapshot}.
+ * The map is a 32-way trie over the bits of the epoch day, most significant bits first, so the keys are visited
+ * in ascending date order. It is never modified: a change copies only the seven nodes on the path to its day
+ * and shares all other nodes with the previous version, which stays valid for the readers that hold it.
+ * Every node knows the number of events below it, so a scan can be split into subtrees of similar size.
+ */
+final class DayTrie {
+
+    /**
+     * Number of key bits consumed by a level.
+     */
+    private static final int BITS=5;
+
+    /**
+     * Number of children of a node.
+     */
+    private static final int WIDTH=1<<BITS;
+
+    /**
+     * Mask of the child index of a level.
+     */
+    private static final int MASK=WIDTH-1;
+
+    /**
+     * Number of levels, enough to cover the 32 bits of an epoch day.
+     */
+    private static final int LEVELS=(Integer.SIZE+BITS-1)/BITS;
+
+    /**
+     * Largest key of the map.
+     */
+    private static final long MAX_KEY=(1L<<Integer.SIZE)-1;
+
+    /**
+     * Returned by key searches when there is no such key.
+     */
+    static final long NO_KEY=-1;
+
+    /**
+     * The map without days.
+     */
+    static final DayTrie EMPTY=new DayTrie(null);
+
+    /**
+     * Root node, null if the map is empty.
+     */
+    private final Node root;
+
+    /**
+     * Constructs a map with the given root.
+     * @param root the root node
+     */
+    private DayTrie(Node root) {
+        this.root=root;
+    }
+
+    /**
+     * Converts an epoch day to its key, which orders the negative days before the positive ones.
+     * @param epochDay the epoch day
+     * @return the key, between 0 and 2^32 - 1
+     */
+    static long keyOf(int epochDay){
+        return Integer.toUnsignedLong(epochDay^Integer.MIN_VALUE);
+    }
+
+    /**
+     * Converts a key back to its epoch day.
+     * @param key the key
+     * @return the epoch day
+     */
+    static int epochDayOf(long key){
+        return (int) key^Integer.MIN_VALUE;
+    }
+
+    /**
+     * Returns the day of the given key.
+     * @param key the key of the day
+     * @return the day, or null if the map has no such day
+     */
+    DaySchedule get(long key){
+        Node node=root;
+        for(int level=0;node!=null;level++){
+            Object child=node.children[indexAt(key,level)];
+            if(level==LEVELS-1)
+                return (DaySchedule) child;
+            node=(Node) child;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the map with the day of the given key replaced.
+     * @param key the key of the day
+     * @param day the new day, null or empty to remove the day
+     * @return the new map
+     */
+    DayTrie with(long key, DaySchedule day){
+        if(day!=null&&day.isEmpty())
+            day=null;
+        return new DayTrie(with(root,key,0,day));
+    }
+
+    /**
+     * Returns the smallest key of the map which is greater than or equal to the given key.
+     * @param key the key to start from
+     * @return the key, or {@link #NO_KEY} if there is none
+     */
+    long ceilingKey(long key){
+        if(root==null||key<0||key>MAX_KEY)
+            return NO_KEY;
+        return ceilingKey(root,key,0);
+    }
+
+    /**
+     * Reduces the days between the given keys (both inclusive) chunk by chunk.
+     * Every chunk is a run of consecutive days with at most about {@code chunkSize} events and is accumulated into
+     * its own result, the results are combined in key order. If the map has more events than {@code chunkSize},
+     * the subtrees are reduced in parallel on the common fork/join pool.
+     * @param fromKey key of the first day
+     * @param toKey key of the last day
+     * @param chunkSize the number of events up to which a subtree is reduced on a single thread
+     * @param newChunk creates the empty result of a chunk
+     * @param accumulator adds a day to the result of its chunk
+     * @param combiner combines the results of two consecutive chunks, the earlier one first
+     * @param <A> the type of the results
+     * @return the result of all days in the range
+     */
+    <A> A scan(long fromKey, long toKey, int chunkSize, Supplier<A> newChunk, BiConsumer<A,DaySchedule> accumulator, BinaryOperator<A> combiner){
+        ScanTask<A> task=new ScanTask<>(root,0,0,fromKey,toKey,chunkSize,newChunk,accumulator,combiner);
+        if(root==null||root.size<=chunkSize)
+            return task.compute();
+        return ForkJoinPool.commonPool().invoke(task);
+    }
+
+    /**
+     * Checks if the map has no days.
+     * @return true if the map is empty
+     */
+    boolean isEmpty(){
+        return root==null;
+    }
+
+    //region Internal Methods
+
+    /**
+     * Returns the child index of the key at the given level.
+     * @param key the key
+     * @param level the level, 0 for the root
+     * @return the child index
+     */
+    private static int indexAt(long key, int level){
+        return (int) (key>>>shiftOf(level))&MASK;
+    }
+
+    /**
+     * Returns the position of the bits of the given level in the key.
+     * @param level the level, 0 for the root
+     * @return the shift of the bits
+     */
+    private static int shiftOf(int level){
+        return BITS*(LEVELS-1-level);
+    }
+
+    /**
+     * Copies the path to the key with the day replaced.
+     * @param node the node of the level, may be null
+     * @param key the key of the day
+     * @param level the level of the node
+     * @param day the new day, null to remove the day
+     * @return the new node, or null if it has no children left
+     */
+    private static Node with(Node node, long key, int level, DaySchedule day){
+        int index=indexAt(key,level);
+        Object oldChild= node==null ? null : node.children[index];
+        Object newChild= level==LEVELS-1 ? day : with((Node) oldChild,key,level+1,day);
+
+        if(oldChild==newChild)
+            return node;
+
+        int count= node==null ? 0 : node.count;
+        count+=(newChild!=null ? 1 : 0)-(oldChild!=null ? 1 : 0);
+        if(count==0)
+            return null;
+
+        Object[] children= node==null ? new Object[WIDTH] : node.children.clone();
+        children[index]=newChild;
+        return new Node(children,count,sizeOf(node)+sizeOf(newChild)-sizeOf(oldChild));
+    }
+
+    /**
+     * Returns the number of events below a child of a node.
+     * @param child a node, a day or null
+     * @return the number of events
+     */
+    private static int sizeOf(Object child){
+        if(child==null)
+            return 0;
+        return child instanceof Node node ? node.size : ((DaySchedule) child).size();
+    }
+
+    /**
+     * Returns the first key below the given child of a node.
+     * @param nodeKey the first key of the node
+     * @param level the level of the node
+     * @param index the index of the child
+     * @return the first key of the child
+     */
+    private static long firstKeyOf(long nodeKey, int level, int index){
+        return nodeKey|((long) index<<shiftOf(level));
+    }
+
+    /**
+     * Returns the last key below the given child of a node.
+     * @param nodeKey the first key of the node
+     * @param level the level of the node
+     * @param index the index of the child
+     * @return the last key of the child
+     */
+    private static long lastKeyOf(long nodeKey, int level, int index){
+        return firstKeyOf(nodeKey,level,index)+(1L<<shiftOf(level))-1;
+    }
+
+    /**
+     * Searches the subtree of the node for the smallest key greater than or equal to the given key.
+     * @param node the node
+     * @param key the key to start from, it has the same prefix as the keys of the node
+     * @param level the level of the node
+     * @return the key, or {@link #NO_KEY} if there is none
+     */
+    private static long ceilingKey(Node node, long key, int level){
+        int shift=shiftOf(level);
+        long prefix=(key>>>(shift+BITS))<<(shift+BITS);
+
+        for(int index=indexAt(key,level);index<WIDTH;index++){
+            Object child=node.children[index];
+            if(child==null)
+                continue;
+
+            long childKey= index==indexAt(key,level) ? key : prefix|((long) index<<shift);
+            if(level==LEVELS-1)
+                return childKey;
+
+            long found=ceilingKey((Node) child,childKey,level+1);
+            if(found!=NO_KEY)
+                return found;
+        }
+        return NO_KEY;
+    }
+
+    //endregion
+
+    //region Internal Classes
+
+    /**
+     * Inner node of the trie. The children of the last level are {@link DaySchedule}s, the others are nodes.
+     * @param children the children by index, never modified
+     * @param count the number of children which are not null
+     * @param size the number of events below the node
+     */
+    private record Node(Object[] children, int count, int size) {}
+
+    /**
+     * Reduction of the days of a subtree which lie in a key range.
+     * A subtree with more events than the chunk size forks a task per child in the range,
+     * a smaller one is walked on the current thread into a single result.
+     * @param <A> the type of the results
+     */
+    private static final class ScanTask<A> extends RecursiveTask<A> {
+
+        /**
+         * Version of the serialized form.
+         */
+        private static final long serialVersionUID=1L;
+
+        //region Subtree
+        private final Node node;
+        private final int level;
+        private final long nodeKey;
+        //endregion
+
+        //region Reduction
+        private final long fromKey;
+        private final long toKey;
+        private final int chunkSize;
+        private final Supplier<A> newChunk;
+        private final BiConsumer<A,DaySchedule> accumulator;
+        private final BinaryOperator<A> combiner;
+        //endregion
+
+        /**
+         * Constructs the reduction of a subtree.
+         * @param node the root of the subtree, may be null
+         * @param level the level of the node
+         * @param nodeKey the first key of the node
+         * @param fromKey key of the first day of the range
+         * @param toKey key of the last day of the range
+         * @param chunkSize the number of events up to which the subtree is walked on one thread
+         * @param newChunk creates the empty result of a chunk
+         * @param accumulator adds a day to the result of its chunk
+         * @param combiner combines the results of two consecutive chunks
+         */
+        private ScanTask(Node node, int level, long nodeKey, long fromKey, long toKey, int chunkSize,
+                         Supplier<A> newChunk, BiConsumer<A,DaySchedule> accumulator, BinaryOperator<A> combiner) {
+            this.node=node;
+            this.level=level;
+            this.nodeKey=nodeKey;
+            this.fromKey=fromKey;
+            this.toKey=toKey;
+            this.chunkSize=chunkSize;
+            this.newChunk=newChunk;
+            this.accumulator=accumulator;
+            this.combiner=combiner;
+        }
+
+        @Override
+        protected A compute() {
+            if(node==null||node.size<=chunkSize||level==LEVELS-1){
+                A result=newChunk.get();
+                accumulate(node,level,nodeKey,result);
+                return result;
+            }
+
+            List<ScanTask<A>> subtasks=new ArrayList<>();
+            for(int index=0;index<WIDTH;index++){
+                Object child=node.children[index];
+                if(child!=null&&overlaps(nodeKey,level,index))
+                    subtasks.add(new ScanTask<>((Node) child,level+1,firstKeyOf(nodeKey,level,index),fromKey,toKey,chunkSize,newChunk,accumulator,combiner));
+            }
+
+            if(subtasks.isEmpty())
+                return newChunk.get();
+
+            for(int i=1;i<subtasks.size();i++)
+                subtasks.get(i).fork();
+
+            A result=subtasks.get(0).compute();
+            for(int i=1;i<subtasks.size();i++)
+                result=combiner.apply(result,subtasks.get(i).join());
+            return result;
+        }
+
+        /**
+         * Walks the days of a subtree in the range in key order on the current thread.
+         * @param node the root of the subtree, may be null
+         * @param level the level of the node
+         * @param nodeKey the first key of the node
+         * @param result the result of the chunk
+         */
+        private void accumulate(Node node, int level, long nodeKey, A result){
+            if(node==null)
+                return;
+
+            for(int index=0;index<WIDTH;index++){
+                Object child=node.children[index];
+                if(child==null||!overlaps(nodeKey,level,index))
+                    continue;
+
+                if(level==LEVELS-1)
+                    accumulator.accept(result,(DaySchedule) child);
+                else
+                    accumulate((Node) child,level+1,firstKeyOf(nodeKey,level,index),result);
+            }
+        }
+
+        /**
+         * Checks if the keys below a child of a node intersect the range.
+         * @param nodeKey the first key of the node
+         * @param level the level of the node
+         * @param index the index of the child
+         * @return true if the child has keys in the range
+         */
+        private boolean overlaps(long nodeKey, int level, int index){
+            return firstKeyOf(nodeKey,level,index)<=toKey&&lastKeyOf(nodeKey,level,index)>=fromKey;
+        }
+    }
+
+    //endregion
+}
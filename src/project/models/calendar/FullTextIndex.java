@@ -0,0 +1,221 @@
+package project.models.calendar;
+
+import project.contracts.CalendarEventListener;
+import project.models.metrics.CalendarMetrics;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted trigram index over the names and notes of the events of a calendar.
+ * Every run of three characters of a lowercased name or note is a key of a posting set of the events containing it.
+ * A substring query is answered by intersecting the posting sets of the trigrams of the query, starting from the
+ * smallest one, and verifying the few remaining candidates, so its cost does not grow with the size of the calendar.
+ * The index follows the calendar as a {@link CalendarEventListener}. It is safe for concurrent use,
+ * searches share a read lock and run in parallel, changes take the write lock.
+ */
+public class FullTextIndex implements CalendarEventListener {
+
+    /**
+     * Length of the indexed character runs.
+     */
+    private static final int GRAM_LENGTH=3;
+
+    /**
+     * Events by the trigrams of their name and note. Events are compared by identity,
+     * because {@link CalendarEvent#equals(Object)} treats different events of the same slot as equal.
+     */
+    private final Map<Long,Set<CalendarEvent>> postings;
+
+    /**
+     * All indexed events, scanned for queries shorter than a trigram.
+     */
+    private final CalendarEventStore events;
+
+    /**
+     * Guards the posting sets: listener callbacks write, queries read.
+     */
+    private final ReadWriteLock lock=new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an index over the given events. The index must be registered as a listener of the calendar
+     * which owns the events to stay up to date.
+     * @param events the events of the calendar, the store is scanned for queries shorter than a trigram
+     */
+    public FullTextIndex(CalendarEventStore events) {
+        this.postings=new HashMap<>();
+        this.events=events;
+
+        for(CalendarEvent event:events)
+            eventAdded(event);
+    }
+
+    /**
+     * Adds the trigrams of the event's name and note.
+     * @param calendarEvent the added event
+     */
+    @Override
+    public void eventAdded(CalendarEvent calendarEvent) {
+        Set<Long> grams=gramsOf(calendarEvent);
+
+        lock.writeLock().lock();
+        try {
+            for(long gram:grams)
+                postings.computeIfAbsent(gram,key->Collections.newSetFromMap(new IdentityHashMap<>())).add(calendarEvent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the trigrams of the event's name and note.
+     * @param calendarEvent the removed event
+     */
+    @Override
+    public void eventRemoved(CalendarEvent calendarEvent) {
+        Set<Long> grams=gramsOf(calendarEvent);
+
+        lock.writeLock().lock();
+        try {
+            for(long gram:grams){
+                Set<CalendarEvent> posting=postings.get(gram);
+                if(posting==null)
+                    continue;
+
+                posting.remove(calendarEvent);
+                if(posting.isEmpty())
+                    postings.remove(gram);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Holidays do not change names or notes.
+     * @param date the holiday date
+     */
+    @Override
+    public void holidayAdded(LocalDate date) {}
+
+    /**
+     * Finds the events whose name or note contains the given string, ignoring case.
+     * Strings shorter than a trigram have no postings, they are searched by a scan of the current snapshot,
+     * which runs in parallel on large calendars.
+     * @param searchString the string to search for
+     * @return the matching events in chronological order
+     */
+    public List<CalendarEvent> find(String searchString){
+        List<CalendarEvent> result=new ArrayList<>();
+
+        if(searchString.length()<GRAM_LENGTH)
+            return events.snapshot().scan(ArrayList::new,(matches,event)->{
+                if(matches(event,searchString))
+                    matches.add(event);
+            },(first,second)->{
+                first.addAll(second);
+                return first;
+            });
+
+        Set<Long> queryGrams=new HashSet<>();
+        addGrams(searchString,queryGrams);
+
+        lock.readLock().lock();
+        try {
+            List<Set<CalendarEvent>> queryPostings=new ArrayList<>(queryGrams.size());
+            for(long gram:queryGrams){
+                Set<CalendarEvent> posting=postings.get(gram);
+                if(posting==null)
+                    return result;
+                queryPostings.add(posting);
+            }
+            queryPostings.sort(Comparator.comparingInt(Set::size));
+
+            Set<CalendarEvent> smallest=queryPostings.get(0);
+            CalendarMetrics.scanned(smallest.size());
+            for(CalendarEvent candidate:smallest){
+                if(containedInAll(candidate,queryPostings)&&matches(candidate,searchString))
+                    result.add(candidate);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(CollisionSweep.CHRONOLOGICAL);
+        return result;
+    }
+
+    //region Internal Methods
+
+    /**
+     * Checks whether the candidate is in every posting set after the first one.
+     * @param candidate the candidate event
+     * @param queryPostings the posting sets of the query ordered by size
+     * @return true if the candidate has all trigrams of the query
+     */
+    private static boolean containedInAll(CalendarEvent candidate, List<Set<CalendarEvent>> queryPostings){
+        for(int i=1;i<queryPostings.size();i++)
+            if(!queryPostings.get(i).contains(candidate))
+                return false;
+        return true;
+    }
+
+    /**
+     * Checks whether the name or the note of the event contains the string, ignoring case, without allocating.
+     * @param event the event
+     * @param searchString the string to search for
+     * @return true if the event matches
+     */
+    private static boolean matches(CalendarEvent event, String searchString){
+        return containsIgnoreCase(event.getName(),searchString)||containsIgnoreCase(event.getNote(),searchString);
+    }
+
+    /**
+     * Checks whether the text contains the string, ignoring case.
+     * @param text the text, may be null
+     * @param searchString the string to search for
+     * @return true if the text contains the string
+     */
+    private static boolean containsIgnoreCase(String text, String searchString){
+        if(text==null)
+            return false;
+
+        for(int i=0;i+searchString.length()<=text.length();i++)
+            if(text.regionMatches(true,i,searchString,0,searchString.length()))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the distinct trigrams of the event's name and note.
+     * @param event the event
+     * @return the trigrams
+     */
+    private static Set<Long> gramsOf(CalendarEvent event){
+        Set<Long> grams=new HashSet<>();
+        addGrams(event.getName(),grams);
+        addGrams(event.getNote(),grams);
+        return grams;
+    }
+
+    /**
+     * Adds the trigrams of the lowercased text to the set. Each trigram is packed into a long, 16 bits per character.
+     * @param text the text, may be null
+     * @param grams the set to add to
+     */
+    private static void addGrams(String text, Set<Long> grams){
+        if(text==null)
+            return;
+
+        for(int i=0;i+GRAM_LENGTH<=text.length();i++){
+            long gram=0;
+            for(int j=0;j<GRAM_LENGTH;j++)
+                gram=(gram<<Character.SIZE)|Character.toLowerCase(text.charAt(i+j));
+            grams.add(gram);
+        }
+    }
+
+    //endregion
+}
@@ -1,17 +1,26 @@
 package project.models.calendar;
 
+import project.contracts.CalendarEventListener;
+import project.contracts.SegmentSource;
+
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * This class represents a Calendar containing a set of CalendarEvents and a list of merged calendars.
  * '@XmlRootElement' annotation is used to indicate that this class should be mapped to an XML element.
+ * The calendar is safe for concurrent use: the events are held by the concurrent {@link CalendarEventStore},
+ * the holidays by a concurrent set, and the derived indexes are attached to the store once, under its locks.
  */
 @XmlRootElement(name="calendar")
 public class PersonalCalendar {
@@ -23,20 +32,35 @@ public class PersonalCalendar {
     private String name;
 
     /**
-     * Set of all calendar events
+     * All calendar events, indexed by date
      */
-    private Set<CalendarEvent> calendarEvents;
+    private final CalendarEventStore calendarEvents;
 
     /**
      * Set of all holiday dates
      */
     private final Set<LocalDate> holidays;
 
+    /**
+     * Full-text index over the names and notes of the events, built on the first search
+     */
+    private volatile FullTextIndex textIndex;
+
+    /**
+     * Busy minutes per week and day of the week, built on the first busydays query
+     */
+    private volatile BusyMinutesIndex busyMinutesIndex;
+
+    /**
+     * Occupancy bitmaps of the working hours, built on the first free slot search
+     */
+    private volatile WorkdayOccupancy workdayOccupancy;
+
     /**
      * Constructs a new Calendar object with an empty set of CalendarEvents and an empty list of merged calendars.
      */
     public PersonalCalendar() {
-        this.calendarEvents=new HashSet<>();
+        this.calendarEvents=new CalendarEventStore();
         this.holidays=loadHolidays();
     }
 
@@ -45,7 +69,7 @@ public class PersonalCalendar {
      * @param calendarEvents the set of CalendarEvents to be included in this Calendar
      */
     public PersonalCalendar(Set<CalendarEvent> calendarEvents) {
-        this.calendarEvents = calendarEvents;
+        this.calendarEvents = new CalendarEventStore(calendarEvents);
         this.holidays=loadHolidays();
     }
 
@@ -92,6 +116,47 @@ public class PersonalCalendar {
         return calendarEvents.addAll(events);
     }
 
+    /**
+     * Adds a CalendarEvent to this Calendar if it is compatible with all CalendarEvents of its date.
+     * The check and the addition are atomic with respect to other changes of this Calendar.
+     * @param event the CalendarEvent to be added
+     * @return the incompatible CalendarEvents ordered by start time, empty if the CalendarEvent was added
+     */
+    public List<CalendarEvent> addIfCompatible(CalendarEvent event){
+        return calendarEvents.addIfCompatible(event);
+    }
+
+    /**
+     * Adds all given CalendarEvents to this Calendar if every one of them is compatible with the CalendarEvents of its date,
+     * otherwise adds none of them. The given CalendarEvents must be compatible with each other.
+     * @param events the CalendarEvents to be added
+     * @return the given CalendarEvents which are incompatible with this Calendar, empty if all of them were added
+     */
+    public List<CalendarEvent> addAllIfCompatible(Collection<CalendarEvent> events){
+        return calendarEvents.addAllIfCompatible(events);
+    }
+
+    /**
+     * Adds every given CalendarEvent which is compatible with the CalendarEvents of its date, in one store operation.
+     * @param events the CalendarEvents to be added, in the order they are checked
+     * @return the incompatible CalendarEvents of every given CalendarEvent which was not added, by identity,
+     * empty if all of them were added
+     */
+    public Map<CalendarEvent,List<CalendarEvent>> addEachIfCompatible(Collection<CalendarEvent> events){
+        return calendarEvents.addEachIfCompatible(events);
+    }
+
+    /**
+     * Replaces a CalendarEvent of this Calendar with a new one if the new one is compatible with all other CalendarEvents.
+     * The check and the replacement are atomic with respect to other changes of this Calendar.
+     * @param oldEvent the CalendarEvent of this Calendar
+     * @param newEvent the CalendarEvent replacing it
+     * @return the CalendarEvents incompatible with the new one, empty if the CalendarEvent was replaced
+     */
+    public List<CalendarEvent> replaceIfCompatible(CalendarEvent oldEvent, CalendarEvent newEvent){
+        return calendarEvents.replaceIfCompatible(oldEvent,newEvent);
+    }
+
     /**
      * Checks if this Calendar is empty.
      * @return true if this Calendar is empty, false otherwise
@@ -106,22 +171,23 @@ public class PersonalCalendar {
      * @return a Set of incompatible CalendarEvents if the specified CalendarEvent is incompatible with any CalendarEvent in this Calendar, or an empty Set otherwise
      */
     public Set<CalendarEvent> checkIfAllEventAreCompatibleWithCalendar(CalendarEvent calendarEvent) {
-        Set<CalendarEvent> incompatibleEvents=new HashSet<>();
-
-
-        for(CalendarEvent event :calendarEvents)
-        {
-            if(!event.checkCompatibility(calendarEvent))
-            {
-                incompatibleEvents.add(event);
-            }
-        }
+        return new HashSet<>(findConflicts(calendarEvent));
+    }
 
-        return incompatibleEvents;
+    /**
+     * Returns the CalendarEvents of this Calendar which are incompatible with the specified CalendarEvent.
+     * Only the events of the same date are searched through the per-day overlap index.
+     * @param calendarEvent the CalendarEvent to be checked for compatibility
+     * @return the incompatible CalendarEvents ordered by start time, or an empty list otherwise
+     */
+    public List<CalendarEvent> findConflicts(CalendarEvent calendarEvent){
+        return calendarEvents.findConflicts(calendarEvent);
     }
 
     /**
      * Returns the set of CalendarEvents associated with this Calendar.
+     * The returned set is the date-indexed store itself, iterated in date and start time order.
+     * It is safe for concurrent use, its iterators are weakly consistent.
      * @return the set of CalendarEvents associated with this Calendar.
      */
     @XmlElement(name="event")
@@ -130,11 +196,123 @@ public class PersonalCalendar {
     }
 
     /**
-     * Sets the set of CalendarEvents for this Calendar.
+     * Replaces the CalendarEvents of this Calendar with the given ones.
      * @param calendarEvents the set of CalendarEvents to set for this Calendar.
      */
     public void setCalendarEvents(Set<CalendarEvent> calendarEvents) {
-        this.calendarEvents = calendarEvents;
+        if(calendarEvents==this.calendarEvents)
+            return;
+
+        this.calendarEvents.clear();
+        this.calendarEvents.addAll(calendarEvents);
+    }
+
+    /**
+     * Returns the current version of the CalendarEvents of this Calendar.
+     * The snapshot is immutable, so a query can read it without locking for as long as it needs,
+     * while later changes of this Calendar are published as new versions.
+     * @return the current snapshot of the CalendarEvents
+     */
+    @XmlTransient
+    public CalendarSnapshot getSnapshot(){
+        return calendarEvents.snapshot();
+    }
+
+    /**
+     * Returns the current version of the CalendarEvents in which the given dates are loaded.
+     * If this Calendar was opened lazily, only the months of the range are read, so the snapshot must only
+     * be queried for the range.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return the current snapshot of the CalendarEvents
+     */
+    public CalendarSnapshot getSnapshot(LocalDate from, LocalDate to){
+        return calendarEvents.snapshot(from,to);
+    }
+
+    /**
+     * Opens the CalendarEvents of a file lazily: the months of the file are read when they are first used
+     * and evicted again when they are cold. This Calendar must not have CalendarEvents yet.
+     * @param source the file to read the months from
+     */
+    public void attachSegments(SegmentSource source){
+        calendarEvents.attachSegments(source);
+    }
+
+    /**
+     * Returns the CalendarEvents of the given date ordered by start time.
+     * @param date the date to search
+     * @return a read-only list of the CalendarEvents of the date
+     */
+    public List<CalendarEvent> getEventsOn(LocalDate date){
+        return calendarEvents.getEventsOn(date);
+    }
+
+    /**
+     * Returns the CalendarEvents between the given dates (both inclusive) ordered by date and start time.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return a read-only collection of the CalendarEvents in the range
+     */
+    public Collection<CalendarEvent> getEventsBetween(LocalDate from, LocalDate to){
+        return calendarEvents.getEventsBetween(from,to);
+    }
+
+    /**
+     * Returns the CalendarEvents whose name or note contains the given string, ignoring case.
+     * The full-text index is built on the first search and then kept up to date as a listener of this Calendar.
+     * @param searchString the string to search for
+     * @return the matching CalendarEvents ordered by date and start time
+     */
+    public List<CalendarEvent> findEvents(String searchString){
+        FullTextIndex index=textIndex;
+        if(index==null)
+            index=attachTextIndex();
+        return index.find(searchString);
+    }
+
+    /**
+     * Sums the busy minutes of the CalendarEvents between the given dates (both inclusive) per day of the week.
+     * The running aggregate is built on the first call and then kept up to date as a listener of this Calendar,
+     * so every call is a range sum independent of the number of events.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param busyMinutes receives the busy minutes indexed by {@link java.time.DayOfWeek#ordinal()}
+     * @param eventCounts receives the number of events indexed by {@link java.time.DayOfWeek#ordinal()}
+     */
+    public void sumBusyMinutes(LocalDate from, LocalDate to, long[] busyMinutes, int[] eventCounts){
+        BusyMinutesIndex index=busyMinutesIndex;
+        if(index==null)
+            index=attachBusyMinutesIndex();
+        index.sumByDayOfWeek(from,to,busyMinutes,eventCounts);
+    }
+
+    /**
+     * Returns the occupancy bitmaps of the working hours of this Calendar.
+     * The bitmaps are built on the first call and then kept up to date as a listener of this Calendar.
+     * @return the occupancy bitmaps
+     */
+    @XmlTransient
+    public WorkdayOccupancy getWorkdayOccupancy(){
+        WorkdayOccupancy occupancy=workdayOccupancy;
+        if(occupancy==null)
+            occupancy=attachWorkdayOccupancy();
+        return occupancy;
+    }
+
+    /**
+     * Returns the occupancy bitmaps of the working hours between the given dates (both inclusive).
+     * The bitmaps of the whole Calendar are returned if they were built already, otherwise only the months of the range
+     * are read and their bitmaps are built for this call, without following later changes.
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return the occupancy bitmaps, at least of the range
+     */
+    public WorkdayOccupancy getWorkdayOccupancy(LocalDate from, LocalDate to){
+        WorkdayOccupancy occupancy=workdayOccupancy;
+        if(occupancy==null)
+            occupancy=new WorkdayOccupancy(calendarEvents,from,to,WorkdayOccupancy.DEFAULT_GRANULARITY);
+        return occupancy;
     }
 
     /**
@@ -143,15 +321,45 @@ public class PersonalCalendar {
      * @return the result from add method
      */
     public boolean addHoliday(LocalDate date){
-        return holidays.add(date);
+        if(!holidays.add(date))
+            return false;
+
+        calendarEvents.fireHolidayAdded(date);
+        return true;
+    }
+
+    /**
+     * Changes the name, note or holiday flag of a CalendarEvent of this Calendar,
+     * so that the change is reported to the registered listeners.
+     * @param event the CalendarEvent of this Calendar to change
+     * @param change the change to apply
+     */
+    public void updateEvent(CalendarEvent event, Consumer<CalendarEvent> change){
+        calendarEvents.update(event,change);
+    }
+
+    /**
+     * Registers a listener that is notified about every change of this Calendar.
+     * @param listener the listener
+     */
+    public void addListener(CalendarEventListener listener){
+        calendarEvents.addListener(listener);
+    }
+
+    /**
+     * Unregisters a listener of this Calendar.
+     * @param listener the listener
+     */
+    public void removeListener(CalendarEventListener listener){
+        calendarEvents.removeListener(listener);
     }
 
     /**
      * Get holidays
-     * @return {@link HashSet} of all holiday dates
+     * @return concurrent set of all holiday dates
      */
     private Set<LocalDate> loadHolidays(){
-        HashSet<LocalDate> holidays=new HashSet<>();
+        Set<LocalDate> holidays=ConcurrentHashMap.newKeySet();
         for(CalendarEvent event:calendarEvents){
             if(event.isHoliday())
                 holidays.add(event.getDate());
@@ -159,6 +367,45 @@ public class PersonalCalendar {
         return holidays;
     }
 
+    /**
+     * Builds the full-text index once and attaches it to the events.
+     * @return the full-text index
+     */
+    private synchronized FullTextIndex attachTextIndex(){
+        if(textIndex==null)
+            textIndex=calendarEvents.attach(()->new FullTextIndex(calendarEvents));
+        return textIndex;
+    }
+
+    /**
+     * Builds the busy minutes index once and attaches it to the events.
+     * @return the busy minutes index
+     */
+    private synchronized BusyMinutesIndex attachBusyMinutesIndex(){
+        if(busyMinutesIndex==null)
+            busyMinutesIndex=calendarEvents.attach(()->new BusyMinutesIndex(calendarEvents));
+        return busyMinutesIndex;
+    }
+
+    /**
+     * Builds the occupancy bitmaps once and attaches them to the events.
+     * @return the occupancy bitmaps
+     */
+    private synchronized WorkdayOccupancy attachWorkdayOccupancy(){
+        if(workdayOccupancy==null)
+            workdayOccupancy=calendarEvents.attach(()->new WorkdayOccupancy(calendarEvents,WorkdayOccupancy.DEFAULT_GRANULARITY));
+        return workdayOccupancy;
+    }
+
+    /**
+     * Checks whether the date is marked as holiday
+     * @param date the date to check
+     * @return true if the date is a holiday date
+     */
+    public boolean isHoliday(LocalDate date){
+        return holidays.contains(date);
+    }
+
     /**
      * Returns copy of holiday dates
      * @return set of holiday dates
@@ -0,0 +1,301 @@
+package project.models.calendar;
+
+import project.contracts.SegmentSource;
+import project.exceptions.OperationException;
+import project.exceptions.UncheckedOperationException;
+import project.models.metrics.CalendarMetrics;
+import project.util.TimeEncoding;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Tracks which months of a lazily opened calendar file are resident in a {@link CalendarEventStore}.
+ * Every operation of the store declares the days it touches, the months of those days which are not resident
+ * are read from the {@link SegmentSource} and published into the store's snapshot before the operation runs.
+ * When the store holds more than {@link #RESIDENT_BUDGET} events after an operation, the least recently used months
+ * which were not changed since they were read are dropped again, so the resident events follow the working set.
+ * Changed months stay resident, the source does not hold their changes. Saving writes a new file and leaves the
+ * mapped one in place, so the source keeps serving the months it was opened with.
+ * <p>
+ * Operations run under a shared lock and eviction takes it exclusively, so a month never disappears under a running
+ * operation; eviction is simply skipped while the lock is busy. Operations over the whole calendar read all months,
+ * the source stays attached, so the months are evicted again once the operation is done.
+ */
+final class SegmentTable {
+
+    /**
+     * Number of resident events above which unchanged months are evicted.
+     * It can be set with the system property {@code calendar.residentEvents}.
+     */
+    static final int RESIDENT_BUDGET=Integer.getInteger("calendar.residentEvents",1<<19);
+
+    /**
+     * The current version of the events of the store.
+     */
+    private final AtomicReference<CalendarSnapshot> current;
+
+    /**
+     * Lets operations share the resident months and eviction drop them.
+     */
+    private final ReadWriteLock lock;
+
+    /**
+     * Months of the source which are not resident.
+     */
+    private final NavigableSet<Integer> unloaded;
+
+    /**
+     * Resident months of the source which were not changed, in the order of their last use. Guarded by this table.
+     */
+    private final LinkedHashMap<Integer,Boolean> evictable;
+
+    /**
+     * The file the months are read from, null if all events are resident.
+     */
+    private volatile SegmentSource source;
+
+    /**
+     * Number of events of the months which are not resident. Guarded by this table.
+     */
+    private int unloadedEvents;
+
+    /**
+     * Constructs a table without source, every month is resident.
+     * @param current the current version of the events of the store
+     */
+    SegmentTable(AtomicReference<CalendarSnapshot> current) {
+        this.current=current;
+        this.lock=new ReentrantReadWriteLock();
+        this.unloaded=new ConcurrentSkipListSet<>();
+        this.evictable=new LinkedHashMap<>(16,0.75f,true);
+    }
+
+    /**
+     * Starts reading the months from the given source. The store must not hold events of the source's months.
+     * @param source the file to read the months from
+     */
+    synchronized void attach(SegmentSource source){
+        detach();
+        for(int month:source.getMonths()){
+            unloaded.add(month);
+            unloadedEvents+=source.getEventCount(month);
+        }
+        this.source=source;
+    }
+
+    /**
+     * Forgets the source and the months which are not resident, for example because the store was cleared.
+     */
+    synchronized void detach(){
+        source=null;
+        unloaded.clear();
+        evictable.clear();
+        unloadedEvents=0;
+    }
+
+    /**
+     * Checks if all events are resident.
+     * @return true if there is no source
+     */
+    boolean isResident(){
+        return source==null;
+    }
+
+    /**
+     * Runs an operation on the days between the given epoch days (both inclusive) after reading their months.
+     * @param firstDay the first epoch day the operation touches
+     * @param lastDay the last epoch day the operation touches
+     * @param operation the operation
+     * @param <T> the type of the result
+     * @return the result of the operation
+     */
+    <T> T read(int firstDay, int lastDay, Supplier<T> operation){
+        if(source==null)
+            return operation.get();
+
+        lock.readLock().lock();
+        try {
+            int firstMonth=TimeEncoding.toEpochMonth(firstDay);
+            int lastMonth=TimeEncoding.toEpochMonth(lastDay);
+            for(int month:new ArrayList<>(unloaded.subSet(firstMonth,true,lastMonth,true)))
+                load(month);
+            touch(firstMonth,lastMonth);
+
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+            evictIfOverBudget();
+        }
+    }
+
+    /**
+     * Runs an operation on the whole calendar after reading all months. The source stays attached,
+     * so the months are evicted again after the operation if the store is over budget.
+     * @param operation the operation
+     * @param <T> the type of the result
+     * @return the result of the operation
+     */
+    <T> T readAll(Supplier<T> operation){
+        if(source==null)
+            return operation.get();
+
+        lock.readLock().lock();
+        try {
+            for(int month:new ArrayList<>(unloaded))
+                load(month);
+
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+            evictIfOverBudget();
+        }
+    }
+
+    /**
+     * Marks the month of the given day as changed, so it is not evicted before it is saved.
+     * Must be called by an operation running through {@link #read(int, int, Supplier)}.
+     * @param epochDay the changed day
+     */
+    void changed(int epochDay){
+        if(source==null)
+            return;
+
+        synchronized (this) {
+            evictable.remove(TimeEncoding.toEpochMonth(epochDay));
+        }
+    }
+
+    /**
+     * Returns the number of events of the calendar, resident or not.
+     * @return the number of events
+     */
+    synchronized int size(){
+        return current.get().size()+unloadedEvents;
+    }
+
+    /**
+     * Checks if the calendar has no events, resident or not.
+     * @return true if the calendar has no events
+     */
+    synchronized boolean isEmpty(){
+        return unloadedEvents==0&&current.get().isEmpty();
+    }
+
+    //region Internal Methods
+
+    /**
+     * Reads a month from the source and publishes its days, unless another operation has done it meanwhile.
+     * Only this thread can write the days of the month, the writers of a month wait until it is resident.
+     * @param month the epoch month
+     * @throws UncheckedOperationException if the segment of the month is damaged, the month stays unloaded
+     */
+    private synchronized void load(int month){
+        SegmentSource segmentSource=source;
+        if(segmentSource==null||!unloaded.contains(month))
+            return;
+
+        List<CalendarEvent> events;
+        try {
+            events=segmentSource.readSegment(month);
+        } catch (OperationException e) {
+            throw new UncheckedOperationException(e);
+        }
+
+        Map<Integer,DaySchedule> days=new TreeMap<>();
+        int count=0;
+        for(CalendarEvent event:events){
+            DaySchedule day=days.getOrDefault(event.getEpochDay(),DaySchedule.EMPTY);
+            DaySchedule changed=day.with(event);
+            if(changed!=day)
+                count++;
+            days.put(event.getEpochDay(),changed);
+        }
+
+        CalendarMetrics.scanned(count);
+
+        int loadedEvents=count;
+        current.updateAndGet(snapshot->{
+            CalendarSnapshot next=snapshot;
+            int sizeChange=loadedEvents;
+            for(Map.Entry<Integer,DaySchedule> day:days.entrySet()){
+                next=next.with(day.getKey(),day.getValue(),sizeChange);
+                sizeChange=0;
+            }
+            return next;
+        });
+
+        unloaded.remove(month);
+        unloadedEvents-=segmentSource.getEventCount(month);
+        evictable.put(month,Boolean.TRUE);
+    }
+
+    /**
+     * Marks the resident months of a range as recently used.
+     * @param firstMonth the first epoch month
+     * @param lastMonth the last epoch month
+     */
+    private synchronized void touch(int firstMonth, int lastMonth){
+        if(lastMonth-firstMonth>evictable.size()) {
+            List<Integer> used=new ArrayList<>();
+            for(int month:evictable.keySet())
+                if(month>=firstMonth&&month<=lastMonth)
+                    used.add(month);
+            used.forEach(evictable::get);
+            return;
+        }
+
+        for(int month=firstMonth;month<=lastMonth;month++)
+            evictable.get(month);
+    }
+
+    /**
+     * Drops the least recently used unchanged months while the store holds more than {@link #RESIDENT_BUDGET} events.
+     * Nothing is dropped if an operation is running.
+     */
+    private void evictIfOverBudget(){
+        if(source==null||current.get().size()<=RESIDENT_BUDGET||!lock.writeLock().tryLock())
+            return;
+
+        try {
+            synchronized (this) {
+                Iterator<Integer> months=evictable.keySet().iterator();
+                while(source!=null&&current.get().size()>RESIDENT_BUDGET&&months.hasNext()){
+                    int month=months.next();
+                    months.remove();
+                    unload(month);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the days of a month from the store's snapshot. Readers holding older snapshots still see them.
+     * @param month the epoch month
+     */
+    private void unload(int month){
+        int firstDay=TimeEncoding.firstDayOfMonth(month);
+        int lastDay=TimeEncoding.lastDayOfMonth(month);
+
+        current.updateAndGet(snapshot->{
+            CalendarSnapshot next=snapshot;
+            for(int day=firstDay;day<=lastDay;day++){
+                int size=next.getDay(day).size();
+                if(size>0)
+                    next=next.with(day,DaySchedule.EMPTY,-size);
+            }
+            return next;
+        });
+
+        unloaded.add(month);
+        unloadedEvents+=source.getEventCount(month);
+    }
+
+    //endregion
+}
@@ -0,0 +1,291 @@
+package project.models.calendar;
+
+import project.contracts.CalendarEventListener;
+import project.exceptions.InvalidTimeIntervalException;
+import project.util.TimeEncoding;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Occupancy bitmaps of the working hours of a calendar.
+ * Every day with events has a bitmap of the 08:00 to 17:00 window with one bit per slot of {@link #getGranularity()}
+ * minutes, a set bit marks a slot overlapped by at least one event. Free time is found by jumping between set and
+ * clear bits a word at a time, and the free time shared by several calendars is the complement of their OR-ed bitmaps.
+ * The bitmaps follow the calendar as a {@link CalendarEventListener}, a removal recomputes the bitmap of its day only.
+ * Bitmaps of a range of dates only are built for a single query and do not follow the calendar.
+ * The bitmaps are safe for concurrent use, queries share a read lock and changes take the write lock.
+ */
+public class WorkdayOccupancy implements CalendarEventListener {
+
+    /**
+     * Start of the working hours.
+     */
+    public static final LocalTime WORKDAY_START=LocalTime.of(8,0);
+
+    /**
+     * End of the working hours.
+     */
+    public static final LocalTime WORKDAY_END=LocalTime.of(17,0);
+
+    /**
+     * Length of a slot in minutes used when no granularity is given.
+     */
+    public static final int DEFAULT_GRANULARITY=1;
+
+    /**
+     * Start of the working hours as minute of day.
+     */
+    private static final int START_MINUTE=TimeEncoding.toMinuteOfDay(WORKDAY_START);
+
+    /**
+     * End of the working hours as minute of day.
+     */
+    private static final int END_MINUTE=TimeEncoding.toMinuteOfDay(WORKDAY_END);
+
+    /**
+     * Length of a slot in minutes.
+     */
+    private final int granularity;
+
+    /**
+     * Number of slots of the working hours.
+     */
+    private final int slotCount;
+
+    /**
+     * Bitmaps of the days with events in the working hours, by epoch day.
+     */
+    private final Map<Integer,BitSet> days;
+
+    /**
+     * The events of the calendar, used to recompute the bitmap of a day after a removal.
+     */
+    private final CalendarEventStore events;
+
+    /**
+     * Guards the bitmaps: listener callbacks write, queries read.
+     */
+    private final ReadWriteLock lock=new ReentrantReadWriteLock();
+
+    /**
+     * Constructs the bitmaps of the given events. The occupancy must be registered as a listener of the calendar
+     * which owns the events to stay up to date.
+     * @param events the events of the calendar
+     * @param granularity length of a slot in minutes
+     */
+    WorkdayOccupancy(CalendarEventStore events, int granularity) {
+        this(events,events,granularity);
+    }
+
+    /**
+     * Constructs the bitmaps of the events between the given dates (both inclusive), reading only their months.
+     * The occupancy holds no other dates and must not be registered as a listener.
+     * @param events the events of the calendar
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param granularity length of a slot in minutes
+     */
+    WorkdayOccupancy(CalendarEventStore events, LocalDate from, LocalDate to, int granularity) {
+        this(events,events.getEventsBetween(from,to),granularity);
+    }
+
+    /**
+     * Constructs the bitmaps of the given events.
+     * @param events the events of the calendar
+     * @param occupying the events whose slots are marked
+     * @param granularity length of a slot in minutes
+     */
+    private WorkdayOccupancy(CalendarEventStore events, Iterable<CalendarEvent> occupying, int granularity) {
+        if(granularity<1)
+            throw new IllegalArgumentException("Granularity must be at least one minute");
+
+        this.granularity=granularity;
+        this.slotCount=(END_MINUTE-START_MINUTE+granularity-1)/granularity;
+        this.days=new HashMap<>();
+        this.events=events;
+
+        for(CalendarEvent event:occupying)
+            eventAdded(event);
+    }
+
+    /**
+     * Marks the slots overlapped by the event.
+     * @param calendarEvent the added event
+     */
+    @Override
+    public void eventAdded(CalendarEvent calendarEvent) {
+        int firstSlot=firstSlotOf(calendarEvent);
+        int endSlot=endSlotOf(calendarEvent);
+        if(firstSlot>=endSlot)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            days.computeIfAbsent(calendarEvent.getEpochDay(),day->new BitSet(slotCount)).set(firstSlot,endSlot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recomputes the bitmap of the day of the removed event from the events left on that day.
+     * @param calendarEvent the removed event
+     */
+    @Override
+    public void eventRemoved(CalendarEvent calendarEvent) {
+        int epochDay=calendarEvent.getEpochDay();
+
+        lock.writeLock().lock();
+        try {
+            if(days.remove(epochDay)==null)
+                return;
+
+            for(CalendarEvent event:events.getEventsOn(calendarEvent.getDate()))
+                eventAdded(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Holidays do not change the occupied time.
+     * @param date the holiday date
+     */
+    @Override
+    public void holidayAdded(LocalDate date) {}
+
+    /**
+     * Returns a copy of the bitmap of the given date.
+     * @param date the date
+     * @return the occupied slots of the date, empty if the date has no events in the working hours
+     */
+    public BitSet getOccupiedSlots(LocalDate date){
+        lock.readLock().lock();
+        try {
+            BitSet occupied=days.get(Math.toIntExact(date.toEpochDay()));
+            return occupied==null ? new BitSet(slotCount) : (BitSet) occupied.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the occupied slots of the given date to the bitmap, so it holds the slots occupied in either calendar.
+     * @param date the date
+     * @param occupied the bitmap to add to
+     */
+    public void addOccupiedSlots(LocalDate date, BitSet occupied){
+        lock.readLock().lock();
+        try {
+            BitSet day=days.get(Math.toIntExact(date.toEpochDay()));
+            if(day!=null)
+                occupied.or(day);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the slots occupied by the given events to the bitmap. Used to reduce a calendar which is not followed
+     * by an occupancy to the bitmap of a single day.
+     * @param dayEvents the events of a single day
+     * @param occupied the bitmap to add to
+     */
+    public void addOccupiedSlots(Iterable<CalendarEvent> dayEvents, BitSet occupied){
+        for(CalendarEvent event:dayEvents){
+            int firstSlot=firstSlotOf(event);
+            int endSlot=endSlotOf(event);
+            if(firstSlot<endSlot)
+                occupied.set(firstSlot,endSlot);
+        }
+    }
+
+    /**
+     * Returns the runs of free slots of the bitmap which last at least the given number of minutes.
+     * @param occupied the occupied slots
+     * @param minutes the minimum length of a free run in minutes
+     * @param limit the maximum number of runs to return
+     * @return the free time intervals in chronological order
+     */
+    public List<TimeInterval> findFreeSlots(BitSet occupied, long minutes, int limit){
+        List<TimeInterval> freeSlots=new ArrayList<>();
+        long minimumSlots=Math.max(1,(minutes+granularity-1)/granularity);
+
+        int start=occupied.nextClearBit(0);
+        while(start<slotCount&&freeSlots.size()<limit){
+            int end=occupied.nextSetBit(start);
+            if(end<0||end>slotCount)
+                end=slotCount;
+
+            if(end-start>=minimumSlots)
+                freeSlots.add(interval(start,end));
+
+            start=occupied.nextClearBit(end);
+        }
+
+        return freeSlots;
+    }
+
+    /**
+     * Returns the number of slots of the working hours.
+     * @return the number of bits of a day bitmap
+     */
+    public int getSlotCount(){
+        return slotCount;
+    }
+
+    /**
+     * Returns the length of a slot.
+     * @return the length of a slot in minutes
+     */
+    public int getGranularity(){
+        return granularity;
+    }
+
+    //region Internal Methods
+
+    /**
+     * Returns the first slot overlapped by the event.
+     * @param event the event
+     * @return the slot index, clamped to the working hours
+     */
+    private int firstSlotOf(CalendarEvent event){
+        int minute=Math.max(event.getStartMinute(),START_MINUTE);
+        return Math.min((minute-START_MINUTE)/granularity,slotCount);
+    }
+
+    /**
+     * Returns the slot after the last slot overlapped by the event.
+     * @param event the event
+     * @return the slot index, clamped to the working hours
+     */
+    private int endSlotOf(CalendarEvent event){
+        int minute=Math.min(event.getEndMinute(),END_MINUTE);
+        return Math.max((minute-START_MINUTE+granularity-1)/granularity,0);
+    }
+
+    /**
+     * Converts a run of slots to a time interval.
+     * @param start the first slot of the run
+     * @param end the slot after the run
+     * @return the time interval of the run
+     */
+    private TimeInterval interval(int start, int end){
+        try {
+            return new TimeInterval(TimeEncoding.toLocalTime(START_MINUTE+start*granularity),
+                    TimeEncoding.toLocalTime(Math.min(START_MINUTE+end*granularity,END_MINUTE)));
+        } catch (InvalidTimeIntervalException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //endregion
+}
@@ -6,12 +6,17 @@ import project.models.calendar.CalendarService;
 import project.models.operations.Commands;
 import project.exceptions.CalendarException;
 import project.exceptions.OperationException;
+import project.exceptions.UncheckedOperationException;
 import project.models.operations.OperationFactory;
 import project.models.calendar.PersonalCalendar;
+import project.models.metrics.CalendarMetrics;
+import project.models.metrics.CommandMetrics;
 import project.models.parsers.XMLParser;
 import project.util.CalendarScanner;
 
+import java.io.*;
 import java.util.*;
+import java.util.regex.Pattern;
 
 
 /**
@@ -27,10 +32,16 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
     private XMLParser xmlParser;
     private CalendarService calendarService;
     private OperationFactory operationFactory;
-    private List<String> inputString;
-    private List<String> instructions;
 
-    private static CalendarCLI instance;
+    /**
+     * Separator of the command arguments: whitespace outside of double quotes.
+     */
+    private static final Pattern ARGUMENT_SEPARATOR=Pattern.compile("\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+
+    /**
+     * Size of the output buffer of the batch mode in bytes.
+     */
+    private static final int BATCH_OUTPUT_BUFFER_SIZE=1<<16;
 
     /**
      * Private because we don't want to instantiate this class.
@@ -40,16 +51,23 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
         xmlParser=new XMLParser();
         calendarService=new CalendarService(personalCalendar,xmlParser);
         operationFactory=new OperationFactory(calendarService);
-        inputString=new ArrayList<>();
-        instructions=new ArrayList<>();
     }
 
-
+    /**
+     * Returns the only command line interface. It is created on first use by the class loader,
+     * so concurrent callers always get the same instance.
+     * @return the command line interface
+     */
     public static CalendarCLI getInstance(){
-        if(instance==null){
-            instance=new CalendarCLI();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the calendar service used by the command line interface.
+     * @return the calendar service
+     */
+    public CalendarService getCalendarService() {
+        return calendarService;
     }
 
     /**
@@ -71,6 +89,72 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
         }
     }
 
+    /**
+     * Runs the commands of a script without prompts.
+     * The commands, and the answers to the questions of the commands, are read line by line from the given input.
+     * The output is collected in a buffer which is written when it is full and when the script ends,
+     * also when the script ends with the exit command.
+     * @param input the script
+     */
+    public void runBatch(Reader input) {
+        CalendarScanner.setInput(input);
+
+        PrintStream console=System.out;
+        PrintStream output=new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),BATCH_OUTPUT_BUFFER_SIZE),false);
+        Thread flushOnExit=new Thread(output::flush);
+        System.setOut(output);
+        Runtime.getRuntime().addShutdownHook(flushOnExit);
+
+        try {
+            String line;
+            while((line=CalendarScanner.nextLineOrNull())!=null)
+                processCommand(line);
+        } finally {
+            output.flush();
+            System.setOut(console);
+            Runtime.getRuntime().removeShutdownHook(flushOnExit);
+        }
+    }
+
+    /**
+     * Splits a command line into words on whitespace outside of double quotes.
+     * @param input the command line
+     * @return the words of the command line
+     */
+    public static List<String> splitArguments(String input){
+        return Arrays.asList(ARGUMENT_SEPARATOR.split(input));
+    }
+
+    /**
+     * Checks the arguments of the command, creates its operation and executes it.
+     * It is the entry point of the other front ends, it may be called from several threads at once.
+     * Every execution is measured into the {@link CalendarMetrics} of the command, also when it fails.
+     * Operation exceptions which occurred below an interface that cannot throw them, like a damaged month of a lazily
+     * opened calendar file, are thrown as the operation exceptions they wrap.
+     * @param command the command
+     * @param instructions the arguments of the command
+     * @throws CalendarException if the arguments are invalid or the operation fails
+     */
+    public void execute(Commands command, List<String> instructions) throws CalendarException {
+        CommandMetrics metrics=CalendarMetrics.getInstance().of(command);
+        CommandMetrics previous=CalendarMetrics.enter(metrics);
+        long start=System.nanoTime();
+        boolean succeeded=false;
+        try {
+            checkInstructionsLength(instructions,command);
+
+            Operation operation=operationFactory.getOperation(command,instructions);
+
+            operation.execute();
+            succeeded=true;
+        } catch (UncheckedOperationException e) {
+            throw e.getCause();
+        } finally {
+            metrics.record(System.nanoTime()-start,succeeded);
+            CalendarMetrics.exit(previous);
+        }
+    }
+
     //region Internal Methods
     /**
      * Parses the given command string and returns the corresponding {@link Commands} enum value.
@@ -88,23 +172,20 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
     }
 
     /**
-     Checks the validity of the input command.
+     Checks the validity of the input command and splits it into the command and its arguments.
      @param input the input command to be checked
-     @return {@code true} if the input command is valid, {@code false} otherwise
+     @return the command followed by its arguments, or {@code null} if the input command is not valid
      */
-    private boolean checkInput(String input){
+    private List<String> checkInput(String input){
         if(input.equals(""))
-            return false;
+            return null;
 
-        String regex="\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
-        inputString = Arrays.asList(input.split(regex));
+        List<String> inputString = splitArguments(input);
 
         if(inputString.isEmpty())
-            return false;
-
-        instructions = new ArrayList<>(inputString.subList(1,inputString.size()));
+            return null;
 
-        return true;
+        return inputString;
     }
 
     /**
@@ -114,18 +195,15 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
      */
     private boolean processCommand(String input) {
 
-        if(!checkInput(input)){
+        List<String> inputString=checkInput(input);
+        if(inputString==null){
             return false;
         }
 
-        try {
-            Commands command=parseCommand(inputString.get(0));
-
-            checkInstructionsLength(instructions,command);
+        List<String> instructions = new ArrayList<>(inputString.subList(1,inputString.size()));
 
-            Operation operation=operationFactory.getOperation(command,instructions);
-
-            operation.execute();
+        try {
+            execute(parseCommand(inputString.get(0)),instructions);
         } catch (CalendarException e) {
             System.out.println(e.getMessage());
         }
@@ -134,7 +212,7 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
 
     /**
      * Checks if the length of the instructions is correct for the specified command.
-     * Book, SaveAs, Merge, Change  and Findslotwith are project.exceptions,
+     * Book, Import, Agenda, SaveAs, Merge, Change  and Findslotwith are project.exceptions,
      * because they can take more than their minimum argument size requirement.
      * @param instructions the instructions for the specified command.
      * @param command the specified command.
@@ -145,6 +223,8 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
 
         switch(command){
             case BOOK:
+            case IMPORT:
+            case AGENDA:
             case SAVEAS:
             case MERGE:
             case CHANGE:
@@ -165,4 +245,15 @@ public class CalendarCLI implements CommandLineInterface<Commands> {
         }
     }
     //endregion
+
+    /**
+     * Holds the only command line interface, initialized when the class is first used.
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * The command line interface.
+         */
+        private static final CalendarCLI INSTANCE=new CalendarCLI();
+    }
 }
@@ -0,0 +1,189 @@
+package project.models.metrics;
+
+import project.models.operations.Commands;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The metrics of all commands and of the calendar parsers. They are created up front, registered as MBeans
+ * under the domain {@value #DOMAIN} and printed by the {@code stats} command.
+ * <p>
+ * The command executed by a thread is kept in a thread local, so the code deep below an operation, which does not
+ * know its command, can attribute the events it scans and the bytes it reads to it through the static methods of
+ * this class. Threads which work for a command, like the readers of external calendars, enter its metrics too.
+ * Outside of a command the static methods do nothing.
+ */
+public final class CalendarMetrics {
+
+    /**
+     * JMX domain of the MBeans.
+     */
+    public static final String DOMAIN="project.calendar";
+
+    /**
+     * Metrics of the command executed by the current thread, null outside of a command.
+     */
+    private static final ThreadLocal<CommandMetrics> CURRENT=new ThreadLocal<>();
+
+    /**
+     * Metrics of the commands.
+     */
+    private final Map<Commands,CommandMetrics> commands;
+
+    /**
+     * Metrics of the calendar files read by the parsers.
+     */
+    private final CommandMetrics parserReads;
+
+    /**
+     * Metrics of the calendar files written by the parsers.
+     */
+    private final CommandMetrics parserWrites;
+
+    /**
+     * Private because there is only one instance.
+     */
+    private CalendarMetrics(){
+        commands=new EnumMap<>(Commands.class);
+        for(Commands command:Commands.values())
+            commands.put(command,new CommandMetrics(command.getName()));
+        parserReads=new CommandMetrics("read");
+        parserWrites=new CommandMetrics("write");
+
+        registerMBeans();
+    }
+
+    /**
+     * Returns the metrics of the application. They are created on first use by the class loader.
+     * @return the metrics
+     */
+    public static CalendarMetrics getInstance(){
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the metrics of a command.
+     * @param command the command
+     * @return the metrics of the command
+     */
+    public CommandMetrics of(Commands command){
+        return commands.get(command);
+    }
+
+    /**
+     * Returns the metrics of the calendar files read by the parsers.
+     * @return the read metrics
+     */
+    public CommandMetrics getParserReads(){
+        return parserReads;
+    }
+
+    /**
+     * Returns the metrics of the calendar files written by the parsers.
+     * @return the write metrics
+     */
+    public CommandMetrics getParserWrites(){
+        return parserWrites;
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset(){
+        commands.values().forEach(CommandMetrics::reset);
+        parserReads.reset();
+        parserWrites.reset();
+    }
+
+    //region Current Command
+
+    /**
+     * Makes the current thread work for the given command.
+     * @param metrics the metrics of the command, null to work for no command
+     * @return the metrics the thread worked for before, to be restored with {@link #exit(CommandMetrics)}
+     */
+    public static CommandMetrics enter(CommandMetrics metrics){
+        CommandMetrics previous=CURRENT.get();
+        CURRENT.set(metrics);
+        return previous;
+    }
+
+    /**
+     * Makes the current thread work for the command it worked for before {@link #enter(CommandMetrics)}.
+     * The thread local is set rather than removed, so a thread which executes many commands allocates nothing.
+     * @param previous the metrics returned by {@link #enter(CommandMetrics)}
+     */
+    public static void exit(CommandMetrics previous){
+        CURRENT.set(previous);
+    }
+
+    /**
+     * Returns the metrics of the command the current thread works for.
+     * @return the metrics, null outside of a command
+     */
+    public static CommandMetrics current(){
+        return CURRENT.get();
+    }
+
+    /**
+     * Adds events looked at to the command the current thread works for.
+     * @param events the number of events
+     */
+    public static void scanned(long events){
+        CommandMetrics metrics=CURRENT.get();
+        if(metrics!=null&&events>0)
+            metrics.addEventsScanned(events);
+    }
+
+    //endregion
+
+    //region Internal Methods
+
+    /**
+     * Registers the metrics with the platform MBean server. The metrics keep working without JMX,
+     * for example when the names are already registered by another instance in the same server.
+     */
+    private void registerMBeans(){
+        try {
+            MBeanServer server=ManagementFactory.getPlatformMBeanServer();
+            for(CommandMetrics metrics:commands.values())
+                register(server,"Command",metrics);
+            register(server,"Parser",parserReads);
+            register(server,"Parser",parserWrites);
+        } catch (JMException | SecurityException ignored) {
+            // JMX is optional, the stats command still shows the metrics
+        }
+    }
+
+    /**
+     * Registers one metrics MBean, replacing a stale registration of the same name.
+     * @param server the MBean server
+     * @param type the type key of the object name
+     * @param metrics the metrics
+     * @throws JMException if the MBean cannot be registered
+     */
+    private static void register(MBeanServer server, String type, CommandMetrics metrics) throws JMException {
+        ObjectName name=new ObjectName(DOMAIN+":type="+type+",name="+metrics.getName());
+        if(server.isRegistered(name))
+            server.unregisterMBean(name);
+        server.registerMBean(metrics,name);
+    }
+
+    //endregion
+
+    /**
+     * Holds the only metrics instance, initialized when the class is first used.
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * The metrics.
+         */
+        private static final CalendarMetrics INSTANCE=new CalendarMetrics();
+    }
+}
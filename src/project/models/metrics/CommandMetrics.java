@@ -0,0 +1,149 @@
+package project.models.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of one command, or of one direction of the calendar parsers: a latency histogram, the number of failed
+ * executions, the number of events looked at and the number of bytes of calendar files read and written.
+ * Every counter is updated with atomic increments, so recording is safe from any thread and never allocates.
+ */
+public final class CommandMetrics implements CommandMetricsMBean {
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI=1_000_000d;
+
+    /**
+     * Name of the command.
+     */
+    private final String name;
+
+    /**
+     * Latencies of the executions.
+     */
+    private final LatencyHistogram latencies;
+
+    //region Counters
+    private final AtomicLong failures=new AtomicLong();
+    private final AtomicLong eventsScanned=new AtomicLong();
+    private final AtomicLong bytesRead=new AtomicLong();
+    private final AtomicLong bytesWritten=new AtomicLong();
+    //endregion
+
+    /**
+     * Constructs empty metrics.
+     * @param name the name of the command
+     */
+    public CommandMetrics(String name) {
+        this.name=name;
+        this.latencies=new LatencyHistogram();
+    }
+
+    /**
+     * Records an execution.
+     * @param nanos the latency in nanoseconds
+     * @param succeeded false if the execution threw an exception
+     */
+    public void record(long nanos, boolean succeeded){
+        latencies.record(nanos);
+        if(!succeeded)
+            failures.incrementAndGet();
+    }
+
+    /**
+     * Adds events looked at by an execution.
+     * @param events the number of events
+     */
+    public void addEventsScanned(long events){
+        eventsScanned.addAndGet(events);
+    }
+
+    /**
+     * Adds bytes of a calendar file read by an execution.
+     * @param bytes the number of bytes
+     */
+    public void addBytesRead(long bytes){
+        bytesRead.addAndGet(bytes);
+    }
+
+    /**
+     * Adds bytes of a calendar file written by an execution.
+     * @param bytes the number of bytes
+     */
+    public void addBytesWritten(long bytes){
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Returns the latency histogram of the executions.
+     * @return the histogram, in nanoseconds
+     */
+    public LatencyHistogram getLatencies(){
+        return latencies;
+    }
+
+    @Override
+    public String getName(){
+        return name;
+    }
+
+    @Override
+    public long getInvocations(){
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getFailures(){
+        return failures.get();
+    }
+
+    @Override
+    public double getMeanMillis(){
+        return latencies.getMean()/NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis(){
+        return latencies.getValueAtPercentile(50)/NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP90Millis(){
+        return latencies.getValueAtPercentile(90)/NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis(){
+        return latencies.getValueAtPercentile(99)/NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis(){
+        return latencies.getMax()/NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getEventsScanned(){
+        return eventsScanned.get();
+    }
+
+    @Override
+    public long getBytesRead(){
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getBytesWritten(){
+        return bytesWritten.get();
+    }
+
+    @Override
+    public void reset(){
+        latencies.reset();
+        failures.set(0);
+        eventsScanned.set(0);
+        bytesRead.set(0);
+        bytesWritten.set(0);
+    }
+}
@@ -0,0 +1,79 @@
+package project.models.metrics;
+
+/**
+ * Management interface of the metrics of a command or of a parser direction, as shown by JMX consoles.
+ * Latencies are in milliseconds.
+ */
+public interface CommandMetricsMBean {
+
+    /**
+     * Returns the name of the command.
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Returns the number of executions.
+     * @return the number of invocations
+     */
+    long getInvocations();
+
+    /**
+     * Returns the number of executions which threw an exception.
+     * @return the number of failures
+     */
+    long getFailures();
+
+    /**
+     * Returns the mean latency.
+     * @return the mean in milliseconds
+     */
+    double getMeanMillis();
+
+    /**
+     * Returns the median latency.
+     * @return the 50th percentile in milliseconds
+     */
+    double getP50Millis();
+
+    /**
+     * Returns the 90th percentile of the latency.
+     * @return the 90th percentile in milliseconds
+     */
+    double getP90Millis();
+
+    /**
+     * Returns the 99th percentile of the latency.
+     * @return the 99th percentile in milliseconds
+     */
+    double getP99Millis();
+
+    /**
+     * Returns the largest latency.
+     * @return the maximum in milliseconds
+     */
+    double getMaxMillis();
+
+    /**
+     * Returns the number of events the executions looked at.
+     * @return the number of scanned events
+     */
+    long getEventsScanned();
+
+    /**
+     * Returns the number of bytes of the calendar files the executions read.
+     * @return the number of bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * Returns the number of bytes of the calendar files the executions wrote.
+     * @return the number of bytes written
+     */
+    long getBytesWritten();
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,90 @@
+package project.models.metrics;
+
+import project.contracts.FileParser;
+import project.exceptions.OperationException;
+import project.models.calendar.PersonalCalendar;
+
+import java.io.File;
+
+/**
+ * A calendar parser which measures another one. Every read and write is timed into the parser metrics of
+ * {@link CalendarMetrics}, and the size of the file is added to the bytes read or written of the parser and of the
+ * command the current thread works for. The size is taken from the file system, so the parsers stay unchanged.
+ */
+public class InstrumentedParser implements FileParser<PersonalCalendar> {
+
+    /**
+     * The measured parser.
+     */
+    private final FileParser<PersonalCalendar> parser;
+
+    /**
+     * Constructs an instrumented parser.
+     * @param parser the measured parser
+     */
+    public InstrumentedParser(FileParser<PersonalCalendar> parser) {
+        this.parser=parser;
+    }
+
+    /**
+     * Returns the measured parser.
+     * @return the parser
+     */
+    public FileParser<PersonalCalendar> getParser(){
+        return parser;
+    }
+
+    @Override
+    public PersonalCalendar readFile(File file) throws OperationException {
+        CommandMetrics reads=CalendarMetrics.getInstance().getParserReads();
+        long start=System.nanoTime();
+        boolean succeeded=false;
+        try {
+            PersonalCalendar personalCalendar=parser.readFile(file);
+            succeeded=true;
+            return personalCalendar;
+        } finally {
+            reads.record(System.nanoTime()-start,succeeded);
+            if(succeeded)
+                addBytes(reads,file.length(),true);
+        }
+    }
+
+    @Override
+    public void writeFile(PersonalCalendar personalCalendar, File file) throws OperationException {
+        CommandMetrics writes=CalendarMetrics.getInstance().getParserWrites();
+        long start=System.nanoTime();
+        boolean succeeded=false;
+        try {
+            parser.writeFile(personalCalendar,file);
+            succeeded=true;
+        } finally {
+            writes.record(System.nanoTime()-start,succeeded);
+            if(succeeded)
+                addBytes(writes,file.length(),false);
+        }
+    }
+
+    //region Internal Methods
+
+    /**
+     * Adds the bytes of a file to the parser metrics and to the command the current thread works for.
+     * @param parserMetrics the read or write metrics of the parser
+     * @param bytes the size of the file
+     * @param read true for a read, false for a write
+     */
+    private static void addBytes(CommandMetrics parserMetrics, long bytes, boolean read){
+        CommandMetrics command=CalendarMetrics.current();
+        if(read) {
+            parserMetrics.addBytesRead(bytes);
+            if(command!=null)
+                command.addBytesRead(bytes);
+        } else {
+            parserMetrics.addBytesWritten(bytes);
+            if(command!=null)
+                command.addBytesWritten(bytes);
+        }
+    }
+
+    //endregion
+}
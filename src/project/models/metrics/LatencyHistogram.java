@@ -0,0 +1,153 @@
+package project.models.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with a fixed relative precision, in the style of HdrHistogram.
+ * Values below {@link #SUB_BUCKETS} have a bucket each, larger values are grouped by their highest bit and split
+ * into {@link #SUB_BUCKETS} linear sub-buckets, so every bucket is at most about 3% wide relative to its values.
+ * All buckets are allocated up front, recording is a few atomic increments and never allocates,
+ * so the histogram can stay on in production. Percentiles are computed when they are read.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of bits of a value kept below its highest bit.
+     */
+    private static final int SUB_BUCKET_BITS=5;
+
+    /**
+     * Number of linear sub-buckets of every power of two.
+     */
+    private static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets, enough for every positive long value.
+     */
+    private static final int BUCKETS=(Long.SIZE-SUB_BUCKET_BITS)*SUB_BUCKETS;
+
+    /**
+     * Number of recorded values per bucket.
+     */
+    private final AtomicLongArray counts=new AtomicLongArray(BUCKETS);
+
+    //region Totals
+    private final AtomicLong count=new AtomicLong();
+    private final AtomicLong sum=new AtomicLong();
+    private final AtomicLong max=new AtomicLong();
+    //endregion
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram(){}
+
+    /**
+     * Records a latency.
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos){
+        long value=Math.max(0,nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax=max.get();
+        while(value>currentMax&&!max.compareAndSet(currentMax,value))
+            currentMax=max.get();
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     * @return the count
+     */
+    public long getCount(){
+        return count.get();
+    }
+
+    /**
+     * Returns the largest recorded latency.
+     * @return the maximum in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     * @return the mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean(){
+        long recorded=count.get();
+        return recorded==0 ? 0 : (double) sum.get()/recorded;
+    }
+
+    /**
+     * Returns the latency below or at which the given percentage of the recorded latencies lie.
+     * The result is the middle of its bucket, capped by the maximum.
+     * @param percentile the percentage, between 0 and 100
+     * @return the latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile){
+        long recorded=count.get();
+        if(recorded==0)
+            return 0;
+
+        long rank=Math.max(1,(long) Math.ceil(Math.min(100,Math.max(0,percentile))/100*recorded));
+        long seen=0;
+        for(int index=0;index<BUCKETS;index++){
+            seen+=counts.get(index);
+            if(seen>=rank) {
+                long lowest=lowestValueOf(index);
+                return Math.min(getMax(),lowest+(lowestValueOf(index+1)-lowest-1)/2);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all recorded latencies. Latencies recorded concurrently may be kept partially.
+     */
+    public void reset(){
+        for(int index=0;index<BUCKETS;index++)
+            counts.set(index,0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    //region Internal Methods
+
+    /**
+     * Returns the bucket of a value.
+     * @param value the value, not negative
+     * @return the index of the bucket
+     */
+    private static int indexOf(long value){
+        if(value<SUB_BUCKETS)
+            return (int) value;
+
+        int highestBit=Long.SIZE-1-Long.numberOfLeadingZeros(value);
+        int subBucket=(int) (value>>>(highestBit-SUB_BUCKET_BITS))&(SUB_BUCKETS-1);
+        return (highestBit-SUB_BUCKET_BITS+1)*SUB_BUCKETS+subBucket;
+    }
+
+    /**
+     * Returns the smallest value of a bucket.
+     * @param index the index of the bucket, up to {@link #BUCKETS}
+     * @return the smallest value, {@link Long#MAX_VALUE} past the last bucket
+     */
+    private static long lowestValueOf(int index){
+        if(index<SUB_BUCKETS)
+            return index;
+        if(index>=BUCKETS)
+            return Long.MAX_VALUE;
+
+        int highestBit=index/SUB_BUCKETS+SUB_BUCKET_BITS-1;
+        long subBucket=index%SUB_BUCKETS;
+        return (SUB_BUCKETS+subBucket)<<(highestBit-SUB_BUCKET_BITS);
+    }
+
+    //endregion
+}
@@ -23,10 +23,18 @@ public enum Commands {
      * Command to save the currently open file in a new file.
      */
     SAVEAS("saveas","<file>","saves the currently open file in <file>."),
+    /**
+     * Command to convert a calendar file between the XML and the binary format.
+     */
+    CONVERT("convert","<source> <target>","Converts calendar <source> to <target>. The format of each file is chosen by its extension: .xml or .pcal (binary)."),
     /**
      * Command to print all the available commands and their descriptions.
      */
     HELP("help"," ","Prints this information."),
+    /**
+     * Command to print the metrics of the commands and of the calendar files.
+     */
+    STATS("stats"," ","Prints the number of calls, the failures, the latency in milliseconds (mean, p50, p99, max), the scanned events and the bytes read and written of every command used so far."),
 
     /**
      * Command to exit the program.
@@ -40,6 +48,10 @@ public enum Commands {
      * Command to book an event in the calendar.
      */
     BOOK("book","<date> <startTime> <endTime> <name> <note>","Books an event using given arguments."),
+    /**
+     * Command to book all events of a CSV file at once.
+     */
+    IMPORT("import","<file>","Books all events of a CSV file with rows <date>,<startTime>,<endTime>,<name>,<note>. Rows which conflict with the calendar or with earlier rows are rejected and listed. 'import <file> atomic' imports nothing if any row is rejected."),
     /**
      * Command to unbook an event from the calendar.
      */
@@ -47,7 +59,7 @@ public enum Commands {
     /**
      * Command to print all events for a given date in chronological order.
      */
-    AGENDA("agenda","<date>","Prints all events for given date in chronological order."),
+    AGENDA("agenda","<date>","Prints all events for given date in chronological order. 'agenda <from> <to>' prints a range of dates, 'agenda week <date>' and 'agenda month <date>' print the week or the month of the date."),
     /**
      * Command to update an event in the calendar.
      */
@@ -68,10 +80,14 @@ public enum Commands {
      * Command to find a free meeting place on a given date and desired duration of meeting.
      */
     FINDSLOT("findslot","<fromDate> <hours>","Looks for a free meeting place on a given date and desired duration of meeting. As the meeting must be booked only on working days and in the range from 08:00 to 17:00."),
+    /**
+     * Command to find the first free meeting places of a desired duration within a date range.
+     */
+    FINDSLOTS("findslots","<from> <to> <hours> <count>","Prints the first <count> free meeting places of at least <hours> on the working days from <from> to <to>."),
     /**
      * Command to find a free meeting place on a given date and desired duration of meeting, considering multiple calendars.
      */
-    FINDSLOTWITH("findslotwith","<fromDate> <hours> <calendar>","'Findslotwith' is implementation of 'Findslot' that supports multiple calendars."),
+    FINDSLOTWITH("findslotwith","<fromDate> <hours> <calendar>","'Findslotwith' is implementation of 'Findslot' that supports multiple calendars. Prints the free meeting places common to the loaded calendar and all given calendars."),
     /**
      Command to merge a given calendar with the one that already loaded in the program. Supports multiple calendars.
      */
@@ -44,11 +44,14 @@ public class OperationFactory{
             switch (command) {
                 case EXIT -> { return new Exit(calendarService); }
                 case HELP -> { return new Help(); }
+                case STATS -> { return new Stats(calendarService); }
                 case CLOSE -> { return new Close(calendarService); }
                 case SAVE -> { return new Save(calendarService); }
                 case SAVEAS -> { return new SaveAs(calendarService, instructions); }
+                case CONVERT -> { return new Convert(calendarService, instructions); }
                 case OPEN -> throw new OperationException("There is currently opened file:" + calendarService.getLoadedFile().getAbsolutePath());
                 case BOOK -> { return new Book(calendarService.getRepository(), instructions); }
+                case IMPORT -> { return new Import(calendarService.getRepository(), instructions); }
                 case UNBOOK -> { return new Unbook(calendarService.getRepository(), instructions); }
                 case AGENDA -> { return new Agenda(calendarService.getRepository(), instructions); }
                 case CHANGE -> { return new Change(calendarService.getRepository(), instructions); }
@@ -56,6 +59,7 @@ public class OperationFactory{
                 case HOLIDAY -> { return new Holiday(calendarService.getRepository(), instructions); }
                 case BUSYDAYS -> { return new Busydays(calendarService.getRepository(), instructions); }
                 case FINDSLOT -> { return new FindSlot(calendarService.getRepository(), instructions); }
+                case FINDSLOTS -> { return new FindSlots(calendarService.getRepository(), instructions); }
                 case FINDSLOTWITH -> { return new FindSlotWith(calendarService, instructions); }
                 case MERGE -> { return new Merge(calendarService, instructions); }
                 default -> throw new OperationException("Current operation not found!");
@@ -65,7 +69,9 @@ public class OperationFactory{
             switch (command) {
                 case EXIT -> { return new Exit(calendarService); }
                 case HELP -> { return new Help(); }
+                case STATS -> { return new Stats(calendarService); }
                 case OPEN -> { return new Open(calendarService, instructions); }
+                case CONVERT -> { return new Convert(calendarService, instructions); }
                 default -> throw new OperationException("There is no currently opened file at the moment.");
             }
         }
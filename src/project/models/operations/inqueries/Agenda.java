@@ -7,73 +7,134 @@ import project.models.calendar.PersonalCalendar;
 import project.models.calendar.CalendarEvent;
 import project.models.parsers.LocalDateParser;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 /**
- * The Agenda class represents an operation that prints a list of all events for a specific date in the calendar, sorted by their start time.
+ * The Agenda class represents an operation that prints a list of all events for a specific date or range of dates
+ * in the calendar, sorted by their date and start time.
+ * The events are read from the date-ordered store, so they are printed without sorting,
+ * and they are written page by page while the range is walked instead of being collected first.
+ * The range is a view of the snapshot of the calendar taken when the operation is created,
+ * so a long agenda prints one consistent version and never blocks bookings.
  */
 public class Agenda implements CalendarOperation {
 
     /**
-     * Date to search
+     * Keyword of the week view.
      */
-    private LocalDate date;
+    private static final String WEEK="week";
 
     /**
-     * Set of loaded calendar events.
+     * Keyword of the month view.
      */
-    private Set<CalendarEvent> calendarEvents;
+    private static final String MONTH="month";
+
+    /**
+     * Number of events printed at once.
+     */
+    private static final int PAGE_SIZE=100;
+
+    /**
+     * First date to print
+     */
+    private LocalDate startDate;
+
+    /**
+     * Last date to print
+     */
+    private LocalDate endDate;
+
+    /**
+     * Calendar events of the range in the snapshot of the loaded calendar, ordered by date and start time.
+     */
+    private Collection<CalendarEvent> calendarEvents;
 
     /**
      * Constructs a Agenda object with the given calendar and instructions.
+     * The instructions are a single date, two dates of a range, or {@code week} or {@code month} followed by a date.
      * @param personalCalendar the calendar instance to add the new event to.
      * @param instructions the list of instructions containing the information about the event to be booked.
      * @throws CalendarDateException if the format is invalid
+     * @throws OperationException if there are too many arguments
      */
-    public Agenda(PersonalCalendar personalCalendar, List<String> instructions) throws CalendarDateException {
-        date= LocalDateParser.parse(instructions.get(0));
-        calendarEvents=personalCalendar.getCalendarEvents();
+    public Agenda(PersonalCalendar personalCalendar, List<String> instructions) throws CalendarDateException, OperationException {
+        if(instructions.size()>2)
+            throw new OperationException("'AGENDA' expects <date>, <from> <to>, week <date> or month <date>");
+
+        if(instructions.size()==1){
+            startDate= LocalDateParser.parse(instructions.get(0));
+            endDate=startDate;
+        }
+        else if(instructions.get(0).equals(WEEK)){
+            LocalDate date= LocalDateParser.parse(instructions.get(1));
+            startDate=date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            endDate=date.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+        }
+        else if(instructions.get(0).equals(MONTH)){
+            LocalDate date= LocalDateParser.parse(instructions.get(1));
+            startDate=date.with(TemporalAdjusters.firstDayOfMonth());
+            endDate=date.with(TemporalAdjusters.lastDayOfMonth());
+        }
+        else {
+            startDate= LocalDateParser.parse(instructions.get(0));
+            endDate= LocalDateParser.parse(instructions.get(1));
+        }
+
+        if(startDate.isAfter(endDate))
+            throw new CalendarDateException("Invalid date interval. Start date must be before end date.");
+
+        calendarEvents=personalCalendar.getSnapshot(startDate,endDate).getEventsBetween(startDate,endDate);
     }
 
     /**
-     * Executes the Agenda operation, printing a list of all events for the specified date in the calendar, sorted by their start time.
-     * @throws OperationException if there are no events for the specified date or if the date is in an invalid format.
+     * Executes the Agenda operation, printing a list of all events for the specified dates in the calendar, sorted by their date and start time.
+     * @throws OperationException if there are no events for the specified dates or if the date is in an invalid format.
      */
     @Override
     public void execute() throws OperationException {
+        if(calendarEvents.isEmpty())
+            throw new OperationException("There are no events within the current set date: "+ describeRange());
 
-        List<CalendarEvent> eventsForSort=new ArrayList<>();
-        for(CalendarEvent event: calendarEvents){
-            if(event.getDate().equals(date)){
-                eventsForSort.add(event);
-            }
-        }
-
-        if(eventsForSort.isEmpty())
-            throw new OperationException("There are no events within the current set date: "+ LocalDateParser.format(date));
-
-        Collections.sort(eventsForSort);
-
-        printFoundedEvents(eventsForSort);
+        printFoundedEvents(calendarEvents);
     }
 
     /**
-     * Prints founded events
-     * @param calendarEvents - sorted list of founded events
+     * Prints founded events a page at a time
+     * @param calendarEvents - sorted view of founded events
      */
-    private void printFoundedEvents(List<CalendarEvent> calendarEvents){
+    private void printFoundedEvents(Collection<CalendarEvent> calendarEvents){
         System.out.println(String.format("%-25s","Date")+
                 String.format("%-15s", "Start Time")+
                 String.format("%-15s", "End Time")+
                 String.format("%-30s", "Name")+
                 String.format("%-40s", "Note"));
 
-        for(CalendarEvent event:calendarEvents)
-            System.out.println(event);
+        StringBuilder page=new StringBuilder();
+        int eventsInPage=0;
+        for(CalendarEvent event:calendarEvents){
+            page.append(event).append(System.lineSeparator());
+
+            if(++eventsInPage==PAGE_SIZE){
+                System.out.print(page);
+                page.setLength(0);
+                eventsInPage=0;
+            }
+        }
+        System.out.print(page);
+    }
+
+    /**
+     * Returns the searched dates for messages.
+     * @return the date, or the first and the last date of the range
+     */
+    private String describeRange(){
+        if(startDate.equals(endDate))
+            return LocalDateParser.format(startDate);
+        return LocalDateParser.format(startDate)+" - "+LocalDateParser.format(endDate);
     }
 }
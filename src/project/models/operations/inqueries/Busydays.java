@@ -5,7 +5,6 @@ import project.util.comparators.DurationComparator;
 import project.contracts.CalendarOperation;
 import project.exceptions.CalendarDateException;
 import project.models.calendar.PersonalCalendar;
-import project.models.calendar.CalendarEvent;
 
 import java.time.DayOfWeek;
 import java.time.Duration;
@@ -29,9 +28,9 @@ public class Busydays implements CalendarOperation {
     private LocalDate endDate;
 
     /**
-     * Set of loaded calendar events.
+     * Loaded calendar.
      */
-    private Set<CalendarEvent> calendarEvents;
+    private PersonalCalendar personalCalendar;
 
     /**
      * Map that contains values of {@link Duration} class that shows busyness of the current {@link DayOfWeek}
@@ -49,7 +48,7 @@ public class Busydays implements CalendarOperation {
         startDate= LocalDateParser.parse(instructions.get(0));
         endDate= LocalDateParser.parse(instructions.get(1));
         busydaysMap=new EnumMap<>(DayOfWeek.class);
-        calendarEvents=personalCalendar.getCalendarEvents();
+        this.personalCalendar=personalCalendar;
     }
 
     /**
@@ -63,13 +62,13 @@ public class Busydays implements CalendarOperation {
             throw new CalendarDateException("Invalid date interval. Start date must be before end date.");
         }
 
-        for(CalendarEvent event:calendarEvents){
-            if((event.getDate().isAfter(startDate) || event.getDate().equals(startDate))) {
-                if (event.getDate().isBefore(endDate)||event.getDate().equals(endDate)) {
-                    Duration duration= Duration.between(event.getStartTime(),event.getEndTime());
-                    busydaysMap.merge(event.getDate().getDayOfWeek(),duration,Duration::plus);
-                }
-            }
+        long[] busyMinutes=new long[DayOfWeek.values().length];
+        int[] eventCounts=new int[DayOfWeek.values().length];
+        personalCalendar.sumBusyMinutes(startDate,endDate,busyMinutes,eventCounts);
+
+        for(DayOfWeek dayOfWeek:DayOfWeek.values()){
+            if(eventCounts[dayOfWeek.ordinal()]>0)
+                busydaysMap.put(dayOfWeek,Duration.ofMinutes(busyMinutes[dayOfWeek.ordinal()]));
         }
 
         printBusydays();
@@ -5,10 +5,7 @@ import project.exceptions.OperationException;
 import project.models.calendar.PersonalCalendar;
 import project.models.calendar.CalendarEvent;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * A class that represents an operation for finding events in a calendar that contain a certain search string.
@@ -17,28 +14,22 @@ import java.util.Set;
 public class Find implements CalendarOperation {
 
     /**
-     * Set of loaded calendar events.
+     * The calendar to search in.
      */
-    private Set<CalendarEvent> calendarEvents;
+    private PersonalCalendar personalCalendar;
 
     /**
      * String to search.
      */
     private StringBuilder stringToSearch;
 
-    /**
-     * Set of founded events.
-     */
-    private Set<CalendarEvent> foundedEvents;
-
     /**
      * Constructs a Find object with the given calendar and instructions.
      * @param personalCalendar the calendar instance to add the new event to.
      * @param instructions the list of instructions containing the information about the event to be booked.
      */
     public Find(PersonalCalendar personalCalendar, List<String> instructions) {
-        foundedEvents=new HashSet<>();
-        calendarEvents=personalCalendar.getCalendarEvents();
+        this.personalCalendar=personalCalendar;
         stringToSearch=new StringBuilder();
 
         for(String value:instructions) {
@@ -51,22 +42,14 @@ public class Find implements CalendarOperation {
 
     /**
      * Executes the operation to find events in the calendar that contain the specified search string.
-     * Searches for events with names or notes that contain the search string case-insensitively.
+     * Searches for events with names or notes that contain the search string case-insensitively
+     * through the full-text index of the calendar.
      * If found, prints the events to the console.
      * @throws OperationException If no events are found that contain the search string.
      */
     @Override
     public void execute() throws OperationException {
-
-        for(CalendarEvent event:calendarEvents){
-            String eventNameCaseInsensitive=event.getName().toLowerCase();
-            String eventNoteCaseInsensitive=event.getNote().toLowerCase();
-            String stringToSearchCaseInsensitive=stringToSearch.toString().toLowerCase();
-
-            if(eventNameCaseInsensitive.contains(stringToSearchCaseInsensitive)||eventNoteCaseInsensitive.contains(stringToSearchCaseInsensitive)){
-                foundedEvents.add(event);
-            }
-        }
+        List<CalendarEvent> foundedEvents=personalCalendar.findEvents(stringToSearch.toString());
 
         if(foundedEvents.isEmpty())
             throw new OperationException("There are no events that contain: "+stringToSearch);
@@ -76,8 +59,8 @@ public class Find implements CalendarOperation {
         printFoundedEvents(foundedEvents);
     }
 
-    private void printFoundedEvents(Set<CalendarEvent> calendarEventSet){
-        for(CalendarEvent event:calendarEventSet){
+    private void printFoundedEvents(List<CalendarEvent> calendarEvents){
+        for(CalendarEvent event:calendarEvents){
             System.out.println(event);
         }
     }
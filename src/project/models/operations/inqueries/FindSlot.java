@@ -8,14 +8,10 @@ import project.exceptions.OperationException;
 import project.models.calendar.PersonalCalendar;
 import project.models.calendar.CalendarEvent;
 import project.models.calendar.TimeInterval;
+import project.models.calendar.WorkdayOccupancy;
 import project.models.parsers.LocalDateParser;
-import project.models.parsers.LocalTimeParser;
 
-import java.time.DayOfWeek;
-import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 
 /**
@@ -39,19 +35,9 @@ public class FindSlot implements DefaultOperation {
     private double hours;
 
     /**
-     * Start time limit.
+     * Occupancy bitmaps of the working hours of the date.
      */
-    private LocalTime startTime;
-
-    /**
-     * End time limit.
-     */
-    private LocalTime endTime;
-
-    /**
-     * Filtered calendar events.
-     */
-    private List<CalendarEvent> filteredCalendarEvents;
+    private WorkdayOccupancy workdayOccupancy;
 
 
     /**
@@ -68,8 +54,8 @@ public class FindSlot implements DefaultOperation {
 
         date= LocalDateParser.parse(instructions.get(0));
 
-        for(CalendarEvent event:personalCalendar.getCalendarEvents()){
-            if(event.getDate().equals(date)&&event.isHoliday())
+        for(CalendarEvent event:personalCalendar.getEventsOn(date)){
+            if(event.isHoliday())
                 throw new OperationException("'FINDSLOT' search for free spaces only in work days!");
         }
 
@@ -79,10 +65,7 @@ public class FindSlot implements DefaultOperation {
             throw new OperationException("Hours argument must have numeric value!");
         }
 
-        startTime= LocalTimeParser.parse("08:00");
-        endTime=LocalTimeParser.parse("17:00");
-
-        filteredCalendarEvents = new ArrayList<>(personalCalendar.getCalendarEvents().stream().filter(item -> item.getDate().equals(date)).toList());
+        workdayOccupancy=personalCalendar.getWorkdayOccupancy(date,date);
     }
 
     /**
@@ -114,31 +97,19 @@ public class FindSlot implements DefaultOperation {
 
     /**
      * Finds and returns a list of free time slots in the calendar based on the instructions provided.
+     * The free slots are the runs of clear bits of the occupancy bitmap of the date.
      * @return an ArrayList of TimeGap objects representing the free time slots in the calendar.
-     * @throws OperationException if there is an error parsing the instructions or the calendar events.
-     * @throws CalendarDateException if the input date is in invalid format.
      */
-    ArrayList<TimeInterval> findFreeSpaceInCalendar() throws CalendarException {
-        ArrayList<TimeInterval> freeTimeIntervals =new ArrayList<>();
-
-        Collections.sort(filteredCalendarEvents);
-
-        Duration duration;
-
-        for(CalendarEvent event:filteredCalendarEvents) {
-            duration = Duration.between(startTime,event.getStartTime());
-            double difference = duration.toHours() + (double) (duration.toMinutes() % 60) / 60;
-            if (difference >= hours) {
-                freeTimeIntervals.add(new TimeInterval(startTime,event.getStartTime()));
-            }
-            startTime=event.getEndTime();
-        }
+    ArrayList<TimeInterval> findFreeSpaceInCalendar() {
+        return new ArrayList<>(workdayOccupancy.findFreeSlots(workdayOccupancy.getOccupiedSlots(date),toMinutes(hours),Integer.MAX_VALUE));
+    }
 
-        duration = Duration.between(startTime, endTime);
-        double difference = duration.toHours() + (double) (duration.toMinutes() % 60) / 60;
-        if (difference >= hours) {
-            freeTimeIntervals.add(new TimeInterval(startTime,endTime));
-        }
-        return freeTimeIntervals;
+    /**
+     * Converts the desired duration to whole minutes, rounding up.
+     * @param hours the duration in hours
+     * @return the duration in minutes
+     */
+    static long toMinutes(double hours){
+        return (long) Math.ceil(hours*60-1e-9);
     }
 }
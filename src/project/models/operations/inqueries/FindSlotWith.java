@@ -5,26 +5,29 @@ import project.exceptions.*;
 import project.models.calendar.CalendarService;
 import project.models.calendar.PersonalCalendar;
 import project.models.calendar.CalendarEvent;
+import project.models.calendar.TimeInterval;
+import project.models.calendar.WorkdayOccupancy;
+import project.models.parsers.BinaryParser;
 import project.models.parsers.LocalDateParser;
-import project.models.parsers.XMLParser;
 
-import javax.xml.bind.JAXBException;
 import java.io.File;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 
 /**
  * A class that represents a find-slot-with operation in a calendar.
- * This operation finds a time slot with the requested duration
- * for an event in the calendar, given a date and a set of instructions.
- * It searches for free slots in the calendar and other external calendars,
- * then combines the calendars to find the first available slot
- * and returns the start and end times of that slot.
+ * This operation finds the time slots with the requested duration which are free
+ * in the loaded calendar and in all external calendars on a given date.
+ * The external calendars are read concurrently and each of them is reduced to the occupancy bitmap of the date,
+ * the common free slots are the clear bits of the OR of all bitmaps.
  */
 public class FindSlotWith implements CalendarOperation {
 
+    /**
+     * The service of the loaded calendar.
+     */
+    private CalendarService calendarService;
+
     /**
      * Current loaded calendar.
      */
@@ -36,19 +39,14 @@ public class FindSlotWith implements CalendarOperation {
     private LocalDate date;
 
     /**
-     * Set of calendars to be merged.
-     */
-    private Set<PersonalCalendar> personalCalendars;
-
-    /**
-     * Sublist of passed instructions.
+     * Desired duration in minutes.
      */
-    private List<String> subListOfInstructions;
+    private long minutes;
 
     /**
-     * Filtered caledar events from loaded calendar
+     * Files of the external calendars.
      */
-    private HashSet<CalendarEvent> loadedCalendarEventsFiltered;
+    private List<File> externalFiles;
 
     /**
      * Constructs a FindSlotWith object with the provided CalendarService and instruction list.
@@ -57,17 +55,21 @@ public class FindSlotWith implements CalendarOperation {
      * @throws CalendarException if user tries to pass as an argument the name of the already loaded file or if the file that is passed does not exist
      */
     public FindSlotWith(CalendarService calendarService, List<String> instructions) throws CalendarException {
+        this.calendarService=calendarService;
         loadedCalendar=calendarService.getRepository();
-        personalCalendars=new HashSet<>();
         date= LocalDateParser.parse(instructions.get(0));
-        subListOfInstructions=instructions.subList(0,2);
+        externalFiles=new ArrayList<>();
 
-        loadedCalendarEventsFiltered=new HashSet<>(loadedCalendar.getCalendarEvents().stream().filter(item -> item.getDate().equals(date)).toList());
+        try {
+            minutes=FindSlot.toMinutes(Double.parseDouble(instructions.get(1)));
+        }catch (NumberFormatException e){
+            throw new OperationException("Hours argument must have numeric value!");
+        }
 
         for(int i=2;i<instructions.size();i++) {
             String externalFileDirectory = instructions.get(i);
 
-            if (!externalFileDirectory.endsWith(".xml"))
+            if (!externalFileDirectory.endsWith(".xml") && !externalFileDirectory.endsWith(BinaryParser.EXTENSION))
                 externalFileDirectory += ".xml";
 
             File file = new File(externalFileDirectory);
@@ -77,70 +79,61 @@ public class FindSlotWith implements CalendarOperation {
                 continue;
             }
 
-            if (calendarService.getLoadedFile().exists()) {
-                PersonalCalendar calendar = calendarService.getParser().readFile(new File(externalFileDirectory));
-                calendar.setName(externalFileDirectory);
-                personalCalendars.add(calendar);
-            } else{
-                throw new OperationException("File " + externalFileDirectory + "does not exist.\nOperation cancelled");
-            }
+            if (!file.exists())
+                throw new OperationException("File " + externalFileDirectory + " does not exist.\nOperation cancelled");
+
+            externalFiles.add(file);
         }
     }
 
     /**
      * Executes the find-slot-with operation.
-     * Finds a time slot with the requested duration for an event in the calendar,
-     * given a date and a set of instructions.
-     * Searches for free slots in the calendar and other external calendars,
-     * then combines the calendars to find the first available slot
-     * and returns the start and end times of that slot.
-     * @throws CalendarException  if an error occurs while executing the operation
+     * Reads the external calendars concurrently, reduces each of them to the occupancy bitmap of the date,
+     * combines the bitmaps with the bitmap of the loaded calendar and prints the common free slots.
+     * @throws CalendarException  if an external calendar cannot be read or there is no common free slot
      */
     @Override
     public void execute() throws CalendarException {
-
-        if(checkIfEventExistInCalendar(date,loadedCalendar.getCalendarEvents())) {
-
-            FindSlot findSlot = new FindSlot(loadedCalendar, subListOfInstructions);
-
-            if (findSlot.findFreeSpaceInCalendar().isEmpty()) {
-                throw new OperationException("There is no free space in loaded calendar");
-            }
-        }
-
-        for(PersonalCalendar externalPersonalCalendar:personalCalendars){
-
-            if(checkIfEventExistInCalendar(date,loadedCalendar.getCalendarEvents())) {
-
-                FindSlot findSlot = new FindSlot(externalPersonalCalendar, subListOfInstructions);
-
-                if (findSlot.findFreeSpaceInCalendar().isEmpty())
-                    continue;
-            }
-
-            HashSet<CalendarEvent> externalCalendarEventsFiltered=new HashSet<>(externalPersonalCalendar.getCalendarEvents().stream().filter(item -> item.getDate().equals(date)).toList());
-
-            PersonalCalendar mixedPersonalCalendar =new PersonalCalendar();
-            mixedPersonalCalendar.setCalendarEvents(combineCalendars(externalCalendarEventsFiltered));
-
-            System.out.print("\n"+externalPersonalCalendar.getName()+" - ");
-            new FindSlot(mixedPersonalCalendar,subListOfInstructions).execute();
-        }
+        if(isHoliday(loadedCalendar))
+            throw new OperationException("'FINDSLOTWITH' search for free spaces only in work days!");
+
+        WorkdayOccupancy workdayOccupancy=loadedCalendar.getWorkdayOccupancy(date,date);
+        BitSet occupied=workdayOccupancy.getOccupiedSlots(date);
+
+        List<BitSet> externalOccupied=calendarService.readCalendars(externalFiles, calendar -> {
+            BitSet day=new BitSet(workdayOccupancy.getSlotCount());
+            if(isHoliday(calendar))
+                day.set(0,workdayOccupancy.getSlotCount());
+            else
+                workdayOccupancy.addOccupiedSlots(calendar.getEventsOn(date),day);
+            return day;
+        });
+
+        for(BitSet day:externalOccupied)
+            occupied.or(day);
+
+        List<TimeInterval> freeSlots=workdayOccupancy.findFreeSlots(occupied,minutes,Integer.MAX_VALUE);
+        if(freeSlots.isEmpty())
+            throw new OperationException("There is no common free space in the calendars");
+
+        System.out.println("There are common free spaces in "+calendarNames()+": ");
+        for(TimeInterval interval:freeSlots)
+            System.out.println(interval);
     }
 
     //region InternalMethods
     /**
-     * Checks if there are any events in the specified calendar for the given date.
-     * @param dateToSearch      the date to search for events
-     * @param calendarEvents    the calendar events to search
-     * @return true if there are any events for the given date, false otherwise
+     * Checks whether the date is a holiday in the given calendar.
+     * @param personalCalendar  the calendar to search
+     * @return true if the date is marked as holiday or has holiday events in the calendar
      */
-    private boolean checkIfEventExistInCalendar(LocalDate dateToSearch,Set<CalendarEvent> calendarEvents){
-        for (CalendarEvent event : calendarEvents) {
-            if (event.getDate().equals(dateToSearch)) {
-                if (!event.isHoliday()) {
-                    return true;
-                }
+    private boolean isHoliday(PersonalCalendar personalCalendar){
+        if(personalCalendar.isHoliday(date))
+            return true;
+
+        for (CalendarEvent event : personalCalendar.getEventsOn(date)) {
+            if (event.isHoliday()) {
+                return true;
             }
         }
 
@@ -148,77 +141,16 @@ public class FindSlotWith implements CalendarOperation {
     }
 
     /**
-     * Combines the events from two calendars into a single calendar,
-     * removing any events that occur at the same time and are incompatible.
-     * @param firstCalendar the first calendar to combine
-     * @param secondCalendar the second calendar to combine
-     * @return the combined calendar
+     * Returns the names of the files of all searched calendars.
+     * @return the file names separated by commas
      */
-    private HashSet<CalendarEvent> combineCalendars(HashSet<CalendarEvent> secondCalendar) throws CalendarDateException, InvalidTimeIntervalException {
-        HashSet<CalendarEvent> combinedEventsByDate=new HashSet<>();
-
-        HashSet<CalendarEvent> bannedEvents=new HashSet<>();
-
-
-        for(CalendarEvent firstCalendarEvent: loadedCalendarEventsFiltered){
-
-            for(CalendarEvent secondCalendarEvent: secondCalendar){
-
-                if(combinedEventsByDate.contains(secondCalendarEvent)||combinedEventsByDate.contains(firstCalendarEvent))
-                    continue;
-
-                if(firstCalendarEvent.equals(secondCalendarEvent)) {
-                    combinedEventsByDate.add(firstCalendarEvent);
-                    continue;
-                }
-
-                if(firstCalendarEvent.checkCompatibility(secondCalendarEvent))
-                    continue;
-
-                CalendarEvent newCalendarEvent=generateSpecialEvent(firstCalendarEvent,secondCalendarEvent);
-
-                for(CalendarEvent event:combinedEventsByDate){
-                    if(!newCalendarEvent.checkCompatibility(event)){
-                        combinedEventsByDate.remove(event);
-                        newCalendarEvent=generateSpecialEvent(newCalendarEvent,event);
-                        break;
-                    }
-                }
-
-                combinedEventsByDate.add(newCalendarEvent);
-                bannedEvents.add(firstCalendarEvent);
-                bannedEvents.add(secondCalendarEvent);
-            }
-        }
-
-        combinedEventsByDate.addAll(loadedCalendarEventsFiltered);
-        combinedEventsByDate.addAll(secondCalendar);
-
-        for(CalendarEvent event:bannedEvents){
-            combinedEventsByDate.remove(event);
-        }
-
-        return combinedEventsByDate;
-    }
-
-
-    private CalendarEvent generateSpecialEvent(CalendarEvent firstCalendarEvent,CalendarEvent secondCalendarEvent) throws CalendarDateException, InvalidTimeIntervalException {
-        LocalTime minStartTime;
-        LocalTime maxEndTime;
-
-        if(firstCalendarEvent.getStartTime().isAfter(secondCalendarEvent.getStartTime()))
-            minStartTime=secondCalendarEvent.getStartTime();
-        else
-            minStartTime=firstCalendarEvent.getStartTime();
-
-        if(firstCalendarEvent.getEndTime().isAfter(secondCalendarEvent.getEndTime()))
-            maxEndTime=firstCalendarEvent.getEndTime();
-        else
-            maxEndTime=secondCalendarEvent.getEndTime();
-
-        return new CalendarEvent("", date, minStartTime, maxEndTime, "");
+    private String calendarNames(){
+        StringJoiner names=new StringJoiner(", ");
+        names.add(calendarService.getLoadedFile().getName());
+        for(File file:externalFiles)
+            names.add(file.getName());
+        return names.toString();
     }
 
     //endregion
 }
-
@@ -0,0 +1,117 @@
+package project.models.operations.inqueries;
+
+import project.contracts.CalendarOperation;
+import project.exceptions.CalendarDateException;
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarEvent;
+import project.models.calendar.CalendarSnapshot;
+import project.models.calendar.PersonalCalendar;
+import project.models.calendar.TimeInterval;
+import project.models.calendar.WorkdayOccupancy;
+import project.models.parsers.LocalDateParser;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Batched version of {@link FindSlot}: prints the first free slots of at least the desired duration
+ * on the working days of a date range, in chronological order.
+ */
+public class FindSlots implements CalendarOperation {
+
+    /**
+     * Loaded calendar.
+     */
+    private PersonalCalendar personalCalendar;
+
+    /**
+     * First date to search.
+     */
+    private LocalDate startDate;
+
+    /**
+     * Last date to search.
+     */
+    private LocalDate endDate;
+
+    /**
+     * Desired duration in minutes.
+     */
+    private long minutes;
+
+    /**
+     * Number of slots to find.
+     */
+    private int count;
+
+    /**
+     * Constructs a FindSlots object with the given calendar and instructions.
+     * @param personalCalendar the calendar to search in.
+     * @param instructions the first and last date, the desired duration in hours and the number of slots to find.
+     * @throws CalendarDateException if a date format is invalid
+     * @throws OperationException if the duration or the number of slots is invalid
+     */
+    public FindSlots(PersonalCalendar personalCalendar, List<String> instructions) throws CalendarDateException, OperationException {
+        this.personalCalendar=personalCalendar;
+        startDate= LocalDateParser.parse(instructions.get(0));
+        endDate= LocalDateParser.parse(instructions.get(1));
+
+        try {
+            minutes=FindSlot.toMinutes(Double.parseDouble(instructions.get(2)));
+            count=Integer.parseInt(instructions.get(3));
+        }catch (NumberFormatException e){
+            throw new OperationException("Hours and count arguments must have numeric values!");
+        }
+
+        if(count<1)
+            throw new OperationException("Count argument must be positive!");
+    }
+
+    /**
+     * Walks the working days of the range and prints the free slots found in their occupancy bitmaps
+     * until the desired number of slots is reached.
+     * @throws CalendarDateException if the range is invalid
+     * @throws OperationException if there are no free slots in the range
+     */
+    @Override
+    public void execute() throws CalendarDateException, OperationException {
+        if(startDate.isAfter(endDate))
+            throw new CalendarDateException("Invalid date interval. Start date must be before end date.");
+
+        WorkdayOccupancy workdayOccupancy=personalCalendar.getWorkdayOccupancy(startDate,endDate);
+        CalendarSnapshot snapshot=personalCalendar.getSnapshot(startDate,endDate);
+        int found=0;
+
+        for(LocalDate date=startDate;!date.isAfter(endDate)&&found<count;date=date.plusDays(1)){
+            if(!isWorkingDay(date,snapshot))
+                continue;
+
+            for(TimeInterval interval:workdayOccupancy.findFreeSlots(workdayOccupancy.getOccupiedSlots(date),minutes,count-found)){
+                if(found==0)
+                    System.out.println("There are free spaces in "+personalCalendar.getName()+": ");
+                System.out.println(LocalDateParser.format(date)+" "+interval);
+                found++;
+            }
+        }
+
+        if(found==0)
+            throw new OperationException("There is no free space in calendar");
+    }
+
+    /**
+     * Checks whether the date is a working day: not a weekend, not a holiday and without holiday events.
+     * @param date the date to check
+     * @param snapshot the version of the events to check
+     * @return true if meetings can be booked on the date
+     */
+    private boolean isWorkingDay(LocalDate date, CalendarSnapshot snapshot){
+        if(date.getDayOfWeek()==DayOfWeek.SATURDAY||date.getDayOfWeek()==DayOfWeek.SUNDAY||personalCalendar.isHoliday(date))
+            return false;
+
+        for(CalendarEvent event:snapshot.getEventsOn(date))
+            if(event.isHoliday())
+                return false;
+        return true;
+    }
+}
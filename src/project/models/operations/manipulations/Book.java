@@ -65,6 +65,7 @@ public class Book implements CalendarOperation {
     /**
      * Executes the booking operation by creating a new CalendarEvent object from the given instructions and adding it to the calendar.
      * If the event is already booked or overlaps with another event,an OperationException is thrown.
+     * The conflict check and the addition are atomic, so concurrent bookings cannot overlap.
      * @throws OperationException if the event is already booked or overlaps with another event or if
      * there is a problem with the date, start time, end time or note of the event.
      * @throws CalendarDateException invalid date format
@@ -76,25 +77,14 @@ public class Book implements CalendarOperation {
 
 
         CalendarEvent calendarEvent=new CalendarEvent(name,date,startTime,endTime,note);
-        boolean isCompatible=true;
-        CalendarEvent incompatibleEvent = null;
-        for(CalendarEvent event: personalCalendar.getCalendarEvents())
-        {
-            if(!calendarEvent.checkCompatibility(event))
-            {
-                isCompatible=false;
-                incompatibleEvent=event;
-            }
-        }
-        if(personalCalendar.getHolidays().contains(date))
+        if(personalCalendar.isHoliday(date))
             calendarEvent.setHoliday(true);
-        if(isCompatible)
-            if(personalCalendar.addEvent(calendarEvent))
-                System.out.println("Event successfully booked:\n "+calendarEvent);
-        else
-            System.out.println("Event is already booked:\n "+calendarEvent);
+
+        List<CalendarEvent> incompatibleEvents=personalCalendar.addIfCompatible(calendarEvent);
+        if(incompatibleEvents.isEmpty())
+            System.out.println("Event successfully booked:\n "+calendarEvent);
         else
-            throw new OperationException("The event you have typed is currently incompatible with event:\n"+incompatibleEvent);
+            throw new OperationException("The event you have typed is currently incompatible with event:\n"+incompatibleEvents.get(0));
 
     }
 }
@@ -11,7 +11,6 @@ import project.models.parsers.LocalTimeParser;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 
@@ -68,7 +67,7 @@ public class Change implements CalendarOperation {
     @Override
     public void execute() throws OperationException, InvalidTimeIntervalException, CalendarDateException, CalendarTimeException {
 
-        HashSet<CalendarEvent> calendarEvents=new HashSet<>(personalCalendar.getCalendarEvents());
+        List<CalendarEvent> calendarEvents=new ArrayList<>(personalCalendar.getEventsOn(date));
 
         CalendarEvent newEvent=new CalendarEvent(date,startTime);
 
@@ -116,9 +115,9 @@ public class Change implements CalendarOperation {
                 checkAndUpdateCalendarEventSet(newEvent,oldEvent);
             }
 
-            case "name" -> oldEvent.setName(newValue);
+            case "name" -> personalCalendar.updateEvent(oldEvent, event -> event.setName(newValue));
 
-            case "note" -> oldEvent.setNote(newValue);
+            case "note" -> personalCalendar.updateEvent(oldEvent, event -> event.setNote(newValue));
 
             default -> throw new OperationException(option+" is not recognized as internal command.");
         }
@@ -127,33 +126,16 @@ public class Change implements CalendarOperation {
 
     /**
      * Checks if the new event is compatible with all the other events in the calendar, and updates the calendar if so.
+     * The check and the replacement are atomic with respect to concurrent changes.
      * If the new event is incompatible with any other event, throws an OperationException with a message describing the conflicts.
      * @param newEvent The CalendarEvent to be added to the calendar
      * @param oldEvent The CalendarEvent to be removed from the calendar
      * @throws OperationException If the new event is incompatible with any other event in the calendar
      */
     private void checkAndUpdateCalendarEventSet(CalendarEvent newEvent,CalendarEvent oldEvent) throws OperationException {
-        boolean isCompatible=true;
-        HashSet<CalendarEvent> incompatibleEvents = new HashSet<>();
-        HashSet<CalendarEvent> calendarEvents=new HashSet<>(personalCalendar.getCalendarEvents());
+        List<CalendarEvent> incompatibleEvents = personalCalendar.replaceIfCompatible(oldEvent,newEvent);
 
-        for(CalendarEvent event:calendarEvents)
-        {
-            if(event.equals(oldEvent))
-                continue;
-
-            if(!newEvent.checkCompatibility(event))
-            {
-                isCompatible=false;
-                incompatibleEvents.add(event);
-            }
-        }
-
-        if(isCompatible) {
-            personalCalendar.remove(oldEvent);
-            personalCalendar.addEvent(newEvent);
-        }
-        else {
+        if(!incompatibleEvents.isEmpty()) {
             StringBuilder descriptionBuilder=new StringBuilder();
             for(CalendarEvent event:incompatibleEvents){
                 descriptionBuilder.append(event);
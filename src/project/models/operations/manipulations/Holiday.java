@@ -43,13 +43,11 @@ public class Holiday implements CalendarOperation {
      */
     @Override
     public void execute() throws OperationException {
-        for(CalendarEvent event: personalCalendar.getCalendarEvents()){
-            if(event.getDate().equals(date)){
-                if(event.isHoliday())
-                    throw new OperationException("That date is already holiday");
-                else
-                    event.setHoliday(true);
-            }
+        for(CalendarEvent event: personalCalendar.getEventsOn(date)){
+            if(event.isHoliday())
+                throw new OperationException("That date is already holiday");
+            else
+                personalCalendar.updateEvent(event, dayEvent -> dayEvent.setHoliday(true));
         }
         System.out.println("The date is set to holiday");
         personalCalendar.addHoliday(date);
@@ -0,0 +1,279 @@
+package project.models.operations.manipulations;
+
+import project.contracts.CalendarOperation;
+import project.exceptions.CalendarException;
+import project.exceptions.InvalidTimeIntervalException;
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarEvent;
+import project.models.calendar.CollisionSweep;
+import project.models.calendar.PersonalCalendar;
+import project.models.parsers.LocalDateParser;
+import project.models.parsers.LocalTimeParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * The Import class books all events of a CSV file in one pass.
+ * Every row holds {@code date,startTime,endTime,name,note} in the formats of the book command, an optional header row
+ * starting with {@code date} is skipped, fields may be enclosed in double quotes.
+ * The rows are sorted by date and start time and swept once: a row is rejected if it collides with an event of the
+ * calendar, found through the per-day overlap index, or with the previous accepted row of the same day.
+ * The accepted rows are then added in one store operation which checks each of them again under the locks of all
+ * their dates, so only the rows losing to a concurrent change are rejected. In atomic mode nothing is added if any
+ * row is rejected.
+ */
+public class Import implements CalendarOperation {
+
+    /**
+     * Keyword of the all-or-nothing mode.
+     */
+    private static final String ATOMIC="atomic";
+
+    /**
+     * Number of fields of a row.
+     */
+    private static final int FIELD_COUNT=5;
+
+    /**
+     * Maximum number of rejected rows listed in the summary.
+     */
+    private static final int MAX_LISTED_REJECTIONS=50;
+
+    /**
+     * Current loaded calendar.
+     */
+    private final PersonalCalendar personalCalendar;
+
+    /**
+     * The CSV file.
+     */
+    private final File file;
+
+    /**
+     * Whether nothing is imported when a row is rejected.
+     */
+    private final boolean atomic;
+
+    /**
+     * Constructs an Import object with the given calendar and instructions.
+     * @param personalCalendar the calendar to import into.
+     * @param instructions the CSV file and optionally {@code atomic}.
+     * @throws OperationException if the arguments are invalid or the file does not exist
+     */
+    public Import(PersonalCalendar personalCalendar, List<String> instructions) throws OperationException {
+        this.personalCalendar=personalCalendar;
+        this.file=new File(instructions.get(0));
+
+        if(instructions.size()>2||(instructions.size()==2&&!instructions.get(1).equals(ATOMIC)))
+            throw new OperationException("'IMPORT' expects <file> [atomic]");
+        this.atomic=instructions.size()==2;
+
+        if(!file.exists())
+            throw new OperationException("File "+file.getPath()+" does not exist.");
+    }
+
+    /**
+     * Reads, checks and adds the rows of the file and prints a summary of the rejected rows.
+     * @throws OperationException if the file cannot be read or, in atomic mode, if any row is rejected
+     */
+    @Override
+    public void execute() throws OperationException {
+        List<Row> rows=new ArrayList<>();
+        SortedMap<Integer,String> rejections=new TreeMap<>();
+        readRows(rows,rejections);
+
+        rows.sort(Comparator.comparing((Row row)->row.event,CollisionSweep.CHRONOLOGICAL).thenComparingInt(row->row.line));
+
+        List<Row> accepted=new ArrayList<>(rows.size());
+        Row lastAccepted=null;
+        for(Row row:rows){
+            List<CalendarEvent> conflicts=personalCalendar.findConflicts(row.event);
+            if(!conflicts.isEmpty()){
+                rejections.put(row.line,"conflicts with "+conflicts.get(0).toString().trim());
+                continue;
+            }
+
+            if(lastAccepted!=null&&!lastAccepted.event.checkCompatibility(row.event)){
+                rejections.put(row.line,"conflicts with line "+lastAccepted.line);
+                continue;
+            }
+
+            accepted.add(row);
+            lastAccepted=row;
+        }
+
+        if(atomic)
+            importAll(accepted,rejections);
+        else
+            importEach(accepted,rejections);
+    }
+
+    //region Internal Methods
+
+    /**
+     * Adds all accepted rows, or none of them if any row was rejected or conflicts with a concurrent change.
+     * @param accepted the accepted rows
+     * @param rejections the reasons of the rejected rows by line number
+     * @throws OperationException if nothing was imported
+     */
+    private void importAll(List<Row> accepted, SortedMap<Integer,String> rejections) throws OperationException {
+        if(rejections.isEmpty()){
+            List<CalendarEvent> events=new ArrayList<>(accepted.size());
+            for(Row row:accepted)
+                events.add(row.event);
+
+            if(personalCalendar.addAllIfCompatible(events).isEmpty()){
+                System.out.println("Imported "+accepted.size()+" events from "+file.getName()+".");
+                return;
+            }
+            System.out.println("The calendar was changed during the import.");
+        }
+
+        printRejections(rejections);
+        throw new OperationException("Import of "+file.getName()+" was cancelled, no events were imported.");
+    }
+
+    /**
+     * Adds the accepted rows as one batch. A row which conflicts with a concurrent change is rejected.
+     * @param accepted the accepted rows
+     * @param rejections the reasons of the rejected rows by line number
+     */
+    private void importEach(List<Row> accepted, SortedMap<Integer,String> rejections){
+        List<CalendarEvent> events=new ArrayList<>(accepted.size());
+        for(Row row:accepted)
+            events.add(row.event);
+
+        Map<CalendarEvent,List<CalendarEvent>> lost=personalCalendar.addEachIfCompatible(events);
+        for(Row row:accepted){
+            List<CalendarEvent> conflicts=lost.get(row.event);
+            if(conflicts!=null)
+                rejections.put(row.line,"conflicts with "+conflicts.get(0).toString().trim());
+        }
+
+        System.out.println("Imported "+(accepted.size()-lost.size())+" events from "+file.getName()+".");
+        printRejections(rejections);
+    }
+
+    /**
+     * Streams the file and converts its rows to events.
+     * @param rows receives the valid rows
+     * @param rejections receives the reasons of the invalid rows by line number
+     * @throws OperationException if the file cannot be read
+     */
+    private void readRows(List<Row> rows, SortedMap<Integer,String> rejections) throws OperationException {
+        try (BufferedReader reader=Files.newBufferedReader(file.toPath())) {
+            String line;
+            int lineNumber=0;
+            while((line=reader.readLine())!=null){
+                lineNumber++;
+                if(line.isBlank())
+                    continue;
+
+                List<String> fields=splitFields(line);
+                if(lineNumber==1&&fields.get(0).trim().equalsIgnoreCase("date"))
+                    continue;
+
+                try {
+                    rows.add(new Row(lineNumber,toEvent(fields)));
+                } catch (CalendarException e) {
+                    rejections.put(lineNumber,e.getMessage());
+                }
+            }
+        } catch (IOException ignored) {
+            throw new OperationException("Cannot read "+file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Converts the fields of a row to an event. Weekends and holiday dates are booked as holiday events,
+     * the same as with the book command.
+     * @param fields the fields of the row
+     * @return the event
+     * @throws CalendarException if the row is incomplete or a field is invalid
+     */
+    private CalendarEvent toEvent(List<String> fields) throws CalendarException {
+        if(fields.size()!=FIELD_COUNT)
+            throw new OperationException("expected "+FIELD_COUNT+" fields but found "+fields.size());
+
+        LocalDate date=LocalDateParser.parse(fields.get(0).trim());
+
+        CalendarEvent event=new CalendarEvent();
+        event.setDate(date);
+        event.setEndTime(LocalTimeParser.parse(fields.get(2).trim()));
+        try {
+            event.setStartTime(LocalTimeParser.parse(fields.get(1).trim()));
+        } catch (InvalidTimeIntervalException ignored) {
+            throw new OperationException("start time is after end time");
+        }
+        event.setName(fields.get(3));
+        event.setNote(fields.get(4));
+        event.setHoliday(date.getDayOfWeek()==DayOfWeek.SATURDAY||date.getDayOfWeek()==DayOfWeek.SUNDAY||personalCalendar.isHoliday(date));
+        return event;
+    }
+
+    /**
+     * Splits a CSV row on commas outside of double quotes. Two double quotes inside quotes stand for one.
+     * @param line the row
+     * @return the fields of the row
+     */
+    private static List<String> splitFields(String line){
+        List<String> fields=new ArrayList<>(FIELD_COUNT);
+        StringBuilder field=new StringBuilder();
+        boolean quoted=false;
+
+        for(int i=0;i<line.length();i++){
+            char character=line.charAt(i);
+            if(character=='"'){
+                if(quoted&&i+1<line.length()&&line.charAt(i+1)=='"'){
+                    field.append('"');
+                    i++;
+                }
+                else
+                    quoted=!quoted;
+            }
+            else if(character==','&&!quoted){
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+                field.append(character);
+        }
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    /**
+     * Prints the number of rejected rows and the first of them in file order.
+     * @param rejections the reasons of the rejected rows by line number
+     */
+    private static void printRejections(SortedMap<Integer,String> rejections){
+        if(rejections.isEmpty())
+            return;
+
+        System.out.println("Rejected "+rejections.size()+" rows:");
+        int listed=0;
+        for(Map.Entry<Integer,String> rejection:rejections.entrySet()){
+            if(listed++==MAX_LISTED_REJECTIONS)
+                break;
+            System.out.println("line "+rejection.getKey()+": "+rejection.getValue());
+        }
+        if(rejections.size()>MAX_LISTED_REJECTIONS)
+            System.out.println("... and "+(rejections.size()-MAX_LISTED_REJECTIONS)+" more");
+    }
+
+    //endregion
+
+    /**
+     * A valid row of the file.
+     * @param line the line number of the row
+     * @param event the event of the row
+     */
+    private record Row(int line, CalendarEvent event) {}
+}
@@ -6,8 +6,11 @@ import project.exceptions.CalendarException;
 import project.exceptions.CalendarTimeException;
 import project.exceptions.OperationException;
 import project.models.calendar.CalendarService;
+import project.models.calendar.CalendarSnapshot;
+import project.models.calendar.CollisionSweep;
 import project.models.calendar.PersonalCalendar;
 import project.models.calendar.CalendarEvent;
+import project.models.parsers.BinaryParser;
 import project.models.parsers.LocalDateParser;
 import project.models.parsers.LocalTimeParser;
 import project.models.parsers.XMLParser;
@@ -32,9 +35,13 @@ public class Merge implements CalendarOperation {
      */
     private File openedFile;
     /**
-     * Map of all passed calendar names and their {@link CalendarEvent}'s
+     * The service which reads the passed calendars.
      */
-    private Map<String,Set<CalendarEvent>> passedCalendars;
+    private CalendarService calendarService;
+    /**
+     * Map of all passed calendar names and their files, in the order of the arguments
+     */
+    private Map<String,File> passedCalendars;
 
     /**
      * Constructs a Merge object with the provided CalendarService and instruction list.
@@ -43,51 +50,68 @@ public class Merge implements CalendarOperation {
      * @throws OperationException if the file within given instructions does not exist
      */
     public Merge(CalendarService calendarService, List<String> instructions) throws OperationException {
+        this.calendarService=calendarService;
         loadedCalendar=calendarService.getRepository();
         openedFile=calendarService.getLoadedFile();
-        this.passedCalendars=new HashMap<>();
+        this.passedCalendars=new LinkedHashMap<>();
 
         for(String fileName: instructions){
-            if(!fileName.endsWith(".xml"))
+            if(!fileName.endsWith(".xml") && !fileName.endsWith(BinaryParser.EXTENSION))
                 fileName+=".xml";
 
-            if(calendarService.getLoadedFile().exists())
-                passedCalendars.put(fileName,new HashSet<>(calendarService.getParser().readFile(new File(fileName)).getCalendarEvents()));
-            else
-                throw new OperationException("File "+fileName + "does not exist.\nMerging was canceled");
+            File file=new File(fileName);
+
+            if(file.equals(openedFile)) {
+                System.out.println("You can't merge the currently opened calendar with itself.\n");
+                continue;
+            }
+
+            if(!file.exists())
+                throw new OperationException("File "+fileName + " does not exist.\nMerging was canceled");
+
+            passedCalendars.putIfAbsent(fileName,file);
         }
     }
 
     /**
-     * Merges multiple XML calendar files into one.
-     * The execute method reads in the names for the files to be merged, and performs
-     * the merging operation. If any collisions are detected between events in the loaded
-     * events and the events in the new events being read, the user will be prompted to
-     * resolve the conflicts. The merged calendars will be added to the current calendar and saved as a new file.
+     * Merges multiple calendar files into one.
+     * All passed calendars are read concurrently, or taken from the calendar cache, and their events are copied,
+     * since the cached calendars are shared. Every one of them is checked for collisions against the same
+     * snapshot of the loaded calendar on the thread that read it. The results are then applied one calendar at a time
+     * in the order of the arguments, so the outcome does not depend on which file was read first. If any collisions are
+     * detected between events in the loaded events and the events of a passed calendar, the user will be prompted to
+     * resolve the conflicts. The merged calendars will be added to the current calendar.
      * @throws OperationException If the merging operation encounters an error or is interrupted by the user.
      */
     @Override
     public void execute() throws OperationException, CalendarDateException, CalendarTimeException {
-        Set<CalendarEvent> loadedEvents= loadedCalendar.getCalendarEvents();
+        CalendarSnapshot loadedEvents=loadedCalendar.getSnapshot();
 
-        for(Map.Entry<String,Set<CalendarEvent>> entry:passedCalendars.entrySet()){
-            String fileName=entry.getKey();
-            Set<CalendarEvent> newCalendarEvents=entry.getValue();
+        List<MergeSource> sources=calendarService.readCalendars(new ArrayList<>(passedCalendars.values()), calendar -> {
+            List<CalendarEvent> newCalendarEvents=new ArrayList<>();
+            for(CalendarEvent event:calendar.getCalendarEvents())
+                newCalendarEvents.add(new CalendarEvent(event));
+            return new MergeSource(newCalendarEvents,CollisionSweep.findCollisions(loadedEvents,newCalendarEvents));
+        });
 
-            Map<CalendarEvent, HashSet<CalendarEvent>> collisionMap = new HashMap<>(getCollidedEvents(loadedEvents, newCalendarEvents));
+        Iterator<String> fileNames=passedCalendars.keySet().iterator();
+        for(MergeSource source:sources){
+            String fileName=fileNames.next();
+            Map<CalendarEvent, List<CalendarEvent>> collisionMap=source.collisionMap();
 
             if(collisionMap.isEmpty()){
-                loadedCalendar.addAll(newCalendarEvents);
+                if(loadedCalendar.addAllIfCompatible(source.events()).isEmpty())
+                    continue;
 
-                continue;
-            }
-            else{
-                if(!askUserForCorrectionAndSubmitAnswer(collisionMap,fileName))
-                    throw new OperationException("Merging between " + fileName + " and " + openedFile.getName() + " was stopped.");
+                // collides with a calendar merged before it
+                collisionMap=CollisionSweep.findCollisions(loadedCalendar.getSnapshot(),source.events());
+            } else if(loadedCalendar.getSnapshot().getVersion()!=loadedEvents.getVersion())
+                collisionMap=CollisionSweep.findCollisions(loadedCalendar.getSnapshot(),source.events());
 
-                if (!resolveCollisions(loadedEvents, newCalendarEvents))
-                    throw new OperationException("Merging between " + fileName + " and " + openedFile.getName() + " was stopped.");
-            }
+            if(!askUserForCorrectionAndSubmitAnswer(collisionMap,fileName))
+                throw new OperationException("Merging between " + fileName + " and " + openedFile.getName() + " was stopped.");
+
+            resolveCollisions(collisionMap, source.events());
         }
 
 
@@ -104,9 +128,9 @@ public class Merge implements CalendarOperation {
      * @return True if the user accepts the proposed solution, false otherwise.
      * @throws OperationException If the merging operation encounters an error or is interrupted by the user.
      */
-    private boolean askUserForCorrectionAndSubmitAnswer(Map<CalendarEvent,HashSet<CalendarEvent>> collisionMap,String fileName) throws OperationException {
+    private boolean askUserForCorrectionAndSubmitAnswer(Map<CalendarEvent,List<CalendarEvent>> collisionMap,String fileName) throws OperationException {
         System.out.println("There is collision between events: ");
-        for (Map.Entry<CalendarEvent, HashSet<CalendarEvent>> entry : collisionMap.entrySet()){
+        for (Map.Entry<CalendarEvent, List<CalendarEvent>> entry : collisionMap.entrySet()){
             System.out.println(entry.getKey()+ " from " + openedFile.getName() + " collided with:");
             entry.getValue().stream().forEach(System.out::print);
             System.out.println("from : "+ fileName+ "\n");
@@ -124,71 +148,31 @@ public class Merge implements CalendarOperation {
     }
 
     /**
-     * Recursively resolves {@link CalendarEvent} collisions.
-     * @param loadedEvents The set of loaded calendar events.
-     * @param newCalendarEvents The set of new calendar events being read in.
-     * @return True if all calendar events have been merged successfully, false otherwise.
-     * @throws OperationException from {@link Merge#createNewEvent(CalendarEvent)} method.
+     * Resolves {@link CalendarEvent} collisions iteratively.
+     * The events which do not collide are added to the loaded calendar first, then the user is asked for new values
+     * of every collided event in chronological order. Each new event is checked against the loaded calendar,
+     * including the events added before it, so no rescanning of both calendars is needed.
+     * @param collisionMap the collisions found by {@link CollisionSweep#findCollisions(Collection, Collection)}.
+     * @param newCalendarEvents The new calendar events being read in.
      */
-    private boolean resolveCollisions(Set<CalendarEvent> loadedEvents,Set<CalendarEvent> newCalendarEvents) throws OperationException, CalendarDateException, CalendarTimeException {
-
-        CalendarEvent collidedEvent=getCollidedEvent(loadedEvents,newCalendarEvents);
+    private void resolveCollisions(Map<CalendarEvent, List<CalendarEvent>> collisionMap,List<CalendarEvent> newCalendarEvents) {
 
-        if(collidedEvent==null)
-            return true;
+        Set<CalendarEvent> collidedEvents=Collections.newSetFromMap(new IdentityHashMap<>());
+        for(List<CalendarEvent> events:collisionMap.values())
+            collidedEvents.addAll(events);
 
-        CalendarEvent newEvent=createNewEvent(collidedEvent);
+        List<CalendarEvent> eventsToChange=new ArrayList<>(collidedEvents);
+        for(CalendarEvent event:newCalendarEvents)
+            if(!collidedEvents.contains(event)&&!loadedCalendar.addIfCompatible(event).isEmpty())
+                eventsToChange.add(event);
 
-        loadedCalendar.addEvent(newEvent);
-        newCalendarEvents.remove(collidedEvent);
+        eventsToChange.sort(CollisionSweep.CHRONOLOGICAL);
 
-        return resolveCollisions(loadedCalendar.getCalendarEvents(),newCalendarEvents);
+        for(CalendarEvent collidedEvent:eventsToChange)
+            while(!loadedCalendar.addIfCompatible(createNewEvent(collidedEvent)).isEmpty())
+                System.out.println("The calendar was changed meanwhile, please type again ");
     }
 
-    /**
-     * A helper method that checks for collided events between two sets of events.
-     * @param firstCalendarEvents the events from the current calendar
-     * @param secondCalendarEvents the events from the given calendar
-     * @return a map of the collided events
-     */
-    private Map<CalendarEvent, HashSet<CalendarEvent>> getCollidedEvents(Set<CalendarEvent> firstCalendarEvents, Set<CalendarEvent> secondCalendarEvents){
-        Map<CalendarEvent, HashSet<CalendarEvent>> collisionMap = new HashMap<>();
-
-        for (CalendarEvent firstCalendarEvent : firstCalendarEvents) {
-
-            HashSet<CalendarEvent> collisionSet=new HashSet<>();
-
-            for (CalendarEvent secondCalendarEvent : secondCalendarEvents)
-                if (!secondCalendarEvent.checkCompatibility(firstCalendarEvent)) {
-                    collisionSet.add(secondCalendarEvent);
-                }
-
-            if(!collisionSet.isEmpty())
-                collisionMap.put(firstCalendarEvent,collisionSet);
-
-        }
-
-        return collisionMap;
-    }
-
-    /**
-     * A helper method that checks for collided events between two sets of events.
-     * @param firstCalendarEvents the events from the current calendar
-     * @param secondCalendarEvents the events from the given calendar
-     * @return a colided event from the Second Calendar Events, otherwise returns null
-     */
-    private CalendarEvent getCollidedEvent(Set<CalendarEvent> firstCalendarEvents, Set<CalendarEvent> secondCalendarEvents){
-
-        for (CalendarEvent firstCalendarEvent : firstCalendarEvents)
-            for (CalendarEvent secondCalendarEvent : secondCalendarEvents)
-                if (!secondCalendarEvent.checkCompatibility(firstCalendarEvent))
-                    return secondCalendarEvent;
-
-        return null;
-    }
-
-
-
     /**
      * Creates a new calendar event based on the given old event, with user input for the date, start time, and end time.
      * @param oldEvent the old calendar event to base the new event on
@@ -258,4 +242,15 @@ public class Merge implements CalendarOperation {
         }
     }
     //endregion
+
+    //region Internal Classes
+
+    /**
+     * A passed calendar and its collisions with the loaded calendar.
+     * @param events the events of the passed calendar
+     * @param collisionMap the collisions found by {@link CollisionSweep#findCollisions(Collection, Collection)}
+     */
+    private record MergeSource(List<CalendarEvent> events, Map<CalendarEvent,List<CalendarEvent>> collisionMap) {}
+
+    //endregion
 }
@@ -9,9 +9,7 @@ import project.models.parsers.LocalTimeParser;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * The Unbook class implements the CalendarOperation interface to represent an operation that unbooks a previously booked event from a Calendar.
@@ -19,9 +17,9 @@ import java.util.Set;
 public class Unbook implements CalendarOperation {
 
     /**
-     * Loaded calendar events.
+     * The calendar to unbook from.
      */
-    private Set<CalendarEvent> loadedCalendarEvents;
+    private PersonalCalendar personalCalendar;
     /**
      * Date of the event to unbook
      */
@@ -45,14 +43,15 @@ public class Unbook implements CalendarOperation {
      * */
     public Unbook(PersonalCalendar personalCalendar, List<String> instructions) throws CalendarTimeException, CalendarDateException {
 
-        this.loadedCalendarEvents=personalCalendar.getCalendarEvents();
+        this.personalCalendar=personalCalendar;
         this.date= LocalDateParser.parse(instructions.get(0));
         this.startTime= LocalTimeParser.parse(instructions.get(1));
         this.endTime= LocalTimeParser.parse(instructions.get(2));
     }
 
     /**
-     * Executes the unbook operation by creating a new CalendarEvent object from the instructions and removing it from the Calendar instance.
+     * Executes the unbook operation by creating a new CalendarEvent object from the instructions and removing the events of its date
+     * which are equal to it, that is which have the same start time or the same end time. Only the events of the date are looked at.
      * @throws OperationException if the specified date or time is invalid or if there is no event booked for the specified date and time.
      */
     @Override
@@ -60,7 +59,12 @@ public class Unbook implements CalendarOperation {
         CalendarEvent calendarEvent =new CalendarEvent("",date,startTime,endTime,"");
 
 
-        if(loadedCalendarEvents.removeIf(calendarEvent::equals))
+        boolean removed=false;
+        for(CalendarEvent event:personalCalendar.getEventsOn(date))
+            if(calendarEvent.equals(event)&&personalCalendar.remove(event))
+                removed=true;
+
+        if(removed)
             System.out.printf("Event successfully unbooked:  %s %s %s\n",date,startTime,endTime);
         else
             throw new OperationException("\nThere is no such event booked: "+date+" "+startTime+" "+endTime);
@@ -0,0 +1,60 @@
+package project.models.operations.userDefault;
+
+import project.contracts.DefaultOperation;
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarService;
+import project.models.calendar.PersonalCalendar;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The Convert class represents an operation for converting a calendar file between the XML and the binary format.
+ * The format of the source and the target file is chosen by their extensions.
+ */
+public class Convert implements DefaultOperation {
+
+    /**
+     * Calendar service object that provides the parsers.
+     */
+    private final CalendarService calendarService;
+
+    /**
+     * The file to convert.
+     */
+    private final File sourceFile;
+
+    /**
+     * The file to write the converted calendar to.
+     */
+    private final File targetFile;
+
+    /**
+     * Constructs a Convert object with the provided CalendarService and instruction list.
+     * @param calendarService The CalendarService object that provides the parsers.
+     * @param instructions The ArrayList containing the instructions for the operation.
+     */
+    public Convert(CalendarService calendarService, List<String> instructions) {
+        this.calendarService = calendarService;
+        this.sourceFile = new File(instructions.get(0));
+        this.targetFile = new File(instructions.get(1));
+    }
+
+    /**
+     * Executes the Convert operation, reading the source file with the parser of its format and writing it with the parser of the target format.
+     * @throws OperationException If the source file does not exist or an error occurs while reading or writing.
+     */
+    @Override
+    public void execute() throws OperationException {
+        if(!sourceFile.exists())
+            throw new OperationException("File " + sourceFile.getPath() + " does not exist.");
+
+        if(sourceFile.getAbsoluteFile().equals(targetFile.getAbsoluteFile()))
+            throw new OperationException("Source and target must be different files.");
+
+        PersonalCalendar personalCalendar = calendarService.readCalendar(sourceFile);
+        calendarService.getParserFor(targetFile).writeFile(personalCalendar, targetFile);
+
+        System.out.println("File " + sourceFile.getPath() + " successfully converted to " + targetFile.getAbsolutePath());
+    }
+}
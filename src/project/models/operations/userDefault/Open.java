@@ -4,6 +4,7 @@ import project.contracts.DefaultOperation;
 import project.exceptions.OperationException;
 import project.models.calendar.CalendarService;
 import project.models.calendar.PersonalCalendar;
+import project.models.parsers.BinaryParser;
 import project.models.parsers.XMLParser;
 
 import javax.xml.bind.JAXBException;
@@ -43,7 +44,7 @@ public class Open implements DefaultOperation {
     @Override
     public void execute() throws OperationException {
 
-        if(!fileDirectory.endsWith(".xml")) {
+        if(!fileDirectory.endsWith(".xml") && !fileDirectory.endsWith(BinaryParser.EXTENSION)) {
             fileDirectory += ".xml";
         }
 
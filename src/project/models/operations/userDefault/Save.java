@@ -29,12 +29,13 @@ public class Save implements DefaultOperation {
 
     /**
      * Executes the Save command. Writes the current state of the calendar to a file using the XMLParser from the CalendarService.
-     * Deletes any merged calendars that were previously created. If an error occurs during writing, an OperationException is thrown.
+     * In journal mode only the changes since the last save are appended to the journal of the file.
+     * If an error occurs during writing, an OperationException is thrown.
      * @throws OperationException If an error occurs during writing.
      */
     @Override
     public void execute() throws OperationException {
-        calendarService.exportFromRepository();
+        calendarService.saveRepository();
 
         System.out.println("File successfully saved "+ calendarService.getLoadedFile().getAbsolutePath());
     }
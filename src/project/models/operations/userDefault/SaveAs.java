@@ -3,6 +3,7 @@ package project.models.operations.userDefault;
 import project.contracts.DefaultOperation;
 import project.exceptions.OperationException;
 import project.models.calendar.CalendarService;
+import project.models.parsers.BinaryParser;
 import project.models.parsers.XMLParser;
 import project.util.CalendarScanner;
 
@@ -40,7 +41,7 @@ public class SaveAs implements DefaultOperation {
     public void execute() throws OperationException {
 
 
-        if(!newFileDirectory.endsWith(".xml"))
+        if(!newFileDirectory.endsWith(".xml") && !newFileDirectory.endsWith(BinaryParser.EXTENSION))
             newFileDirectory+=".xml";
 
         if(checkIfFileAlreadyExistsAndSubmitUserResponse(newFileDirectory)) {
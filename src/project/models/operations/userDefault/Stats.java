@@ -0,0 +1,98 @@
+package project.models.operations.userDefault;
+
+import project.contracts.DefaultOperation;
+import project.models.calendar.CalendarCache;
+import project.models.calendar.CalendarService;
+import project.models.metrics.CalendarMetrics;
+import project.models.metrics.CommandMetrics;
+import project.models.operations.Commands;
+
+/**
+ * A class that prints the metrics of the commands executed so far, of the calendar parsers and of the cache of
+ * external calendars. The same metrics are published as MBeans under the domain {@value CalendarMetrics#DOMAIN}.
+ */
+public class Stats implements DefaultOperation {
+
+    /**
+     * Format of a row of the table.
+     */
+    private static final String ROW="%n\t%-15s%8s%8s%10s%10s%10s%10s%12s%12s%12s";
+
+    /**
+     * The service whose calendar cache is printed.
+     */
+    private final CalendarService calendarService;
+
+    /**
+     * Constructs the operation.
+     * @param calendarService the service whose calendar cache is printed
+     */
+    public Stats(CalendarService calendarService) {
+        this.calendarService = calendarService;
+    }
+
+    /**
+     * Prints a row per command which was executed, a row per parser direction which was used and the calendar cache.
+     * Latencies are in milliseconds and include the failed executions.
+     */
+    @Override
+    public void execute() {
+        CalendarMetrics metrics=CalendarMetrics.getInstance();
+        StringBuilder statsBuilder=new StringBuilder();
+
+        statsBuilder.append("Commands:");
+        appendHeader(statsBuilder);
+        for(Commands command:Commands.values())
+            appendRow(statsBuilder,metrics.of(command));
+
+        statsBuilder.append("\nParsers:");
+        appendHeader(statsBuilder);
+        appendRow(statsBuilder,metrics.getParserReads());
+        appendRow(statsBuilder,metrics.getParserWrites());
+
+        CalendarCache calendarCache=calendarService.getCalendarCache();
+        statsBuilder.append("\nCalendar cache: ")
+                .append(calendarCache.size()).append(" calendars, ")
+                .append(calendarCache.getWeight()).append(" events, ")
+                .append(calendarCache.getHits()).append(" hits, ")
+                .append(calendarCache.getMisses()).append(" misses, ")
+                .append(calendarCache.getEvictions()).append(" evictions");
+
+        System.out.println(statsBuilder);
+    }
+
+    //region Internal Methods
+
+    /**
+     * Appends the column titles of the table.
+     * @param builder the builder of the output
+     */
+    private void appendHeader(StringBuilder builder){
+        builder.append(String.format(ROW,"name","calls","failed","mean","p50","p99","max","scanned","read","written"));
+    }
+
+    /**
+     * Appends the row of a command, unless it was never executed.
+     * @param builder the builder of the output
+     * @param metrics the metrics of the command
+     */
+    private void appendRow(StringBuilder builder, CommandMetrics metrics){
+        if(metrics.getInvocations()==0)
+            return;
+
+        builder.append(String.format(ROW,metrics.getName(),metrics.getInvocations(),metrics.getFailures(),
+                millis(metrics.getMeanMillis()),millis(metrics.getP50Millis()),millis(metrics.getP99Millis()),millis(metrics.getMaxMillis()),
+                metrics.getEventsScanned(),metrics.getBytesRead(),metrics.getBytesWritten()));
+    }
+
+    /**
+     * Formats a latency.
+     * @param millis the latency in milliseconds
+     * @return the latency with three decimals
+     */
+    private static String millis(double millis){
+        return String.format("%.3f",millis);
+    }
+
+    //endregion
+}
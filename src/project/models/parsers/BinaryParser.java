@@ -0,0 +1,473 @@
+package project.models.parsers;
+
+import project.contracts.FileParser;
+import project.contracts.SegmentSource;
+import project.exceptions.InvalidTimeIntervalException;
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarEvent;
+import project.models.calendar.CalendarSnapshot;
+import project.models.calendar.PersonalCalendar;
+import project.util.TimeEncoding;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * The BinaryParser class reads and writes calendars in a compact binary format.
+ * The events are split into one segment per month, so a calendar can be opened by reading only the segment index:
+ * <pre>
+ * header:  int magic, short version, int event count, int segment count
+ * index:   int epoch month, int event count, int offset, int byte length (one entry per month, ascending)
+ * segment: the event records of the month, int string count, the strings of the month
+ * record:  int epoch day, short start minute of day, short end minute of day, byte flags, int name index, int note index
+ * string:  int byte length, UTF-8 bytes
+ * </pre>
+ * Names and notes are stored once per segment in its string table and referenced by index, -1 stands for a missing value.
+ * The file is mapped through a {@link MappedByteBuffer} and handed to the calendar as a {@link SegmentSource},
+ * so the calendar decodes a month only when a command uses it. Files of the first version, with a single record
+ * table and string table, are still read, all at once.
+ */
+public final class BinaryParser implements FileParser<PersonalCalendar> {
+
+    /**
+     * Extension of the binary calendar files.
+     */
+    public static final String EXTENSION=".pcal";
+
+    /**
+     * Magic number at the start of every binary calendar file ("PCAL").
+     */
+    private static final int MAGIC=0x5043414C;
+
+    /**
+     * Version of the format with a single record table.
+     */
+    private static final short FLAT_VERSION=1;
+
+    /**
+     * Version of the format with one segment per month, the version that is written.
+     */
+    private static final short SEGMENTED_VERSION=2;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE=Integer.BYTES+Short.BYTES+Integer.BYTES+Integer.BYTES;
+
+    /**
+     * Size of an entry of the segment index in bytes.
+     */
+    private static final int INDEX_ENTRY_SIZE=4*Integer.BYTES;
+
+    /**
+     * Size of a single event record in bytes.
+     */
+    private static final int RECORD_SIZE=Integer.BYTES+Short.BYTES+Short.BYTES+Byte.BYTES+Integer.BYTES+Integer.BYTES;
+
+    /**
+     * Flag bit marking a holiday event.
+     */
+    private static final byte HOLIDAY_FLAG=1;
+
+    /**
+     * Index written for a missing name or note.
+     */
+    private static final int NO_STRING=-1;
+
+    /**
+     * Default constructor
+     */
+    public BinaryParser(){}
+
+    /**
+     * Checks whether the file is a binary calendar file by its extension.
+     * @param file the file to check
+     * @return true if the file has the binary calendar extension
+     */
+    public static boolean isBinaryFile(File file){
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Maps the specified binary file into memory and returns the calendar it contains.
+     * Only the segment index is read, the calendar reads the months from the mapped file when they are used.
+     * @param file the path of the file to read.
+     * @return the calendar contained in the file.
+     * @throws OperationException if the file cannot be read or is not a binary calendar file.
+     */
+    @Override
+    public PersonalCalendar readFile(File file) throws OperationException {
+        try (FileChannel channel=FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+
+            if(buffer.getInt()!=MAGIC)
+                throw new OperationException("Cannot open: "+file.getAbsolutePath()+" is not a binary calendar file.");
+
+            short version=buffer.getShort();
+            if(version==FLAT_VERSION)
+                return readFlat(buffer);
+            if(version!=SEGMENTED_VERSION)
+                throw new OperationException("Cannot open: "+file.getAbsolutePath()+" is not a binary calendar file.");
+
+            PersonalCalendar personalCalendar=new PersonalCalendar();
+            personalCalendar.attachSegments(new MappedSegments(file,buffer));
+            return personalCalendar;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException |
+                 NegativeArraySizeException | DateTimeException | InvalidTimeIntervalException ignored) {
+            throw new OperationException("Cannot open: "+file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Writes the calendar to the specified file in the binary format.
+     * The segments are taken from one snapshot of the calendar, which reads every month that is not loaded yet.
+     * The file is written next to the target and moved over it, so a calendar which still reads its months from a
+     * mapping of the target keeps reading the file it was opened from.
+     * @param personalCalendar the calendar to write.
+     * @param file the file to write to.
+     * @throws OperationException if there is an error writing to the file.
+     */
+    @Override
+    public void writeFile(PersonalCalendar personalCalendar, File file) throws OperationException {
+        CalendarSnapshot events=personalCalendar.getSnapshot();
+        List<Segment> segments=new ArrayList<>();
+
+        Segment segment=null;
+        for(CalendarEvent event:events){
+            int month=TimeEncoding.toEpochMonth(event.getEpochDay());
+            if(segment==null||segment.month!=month){
+                segment=new Segment(month);
+                segments.add(segment);
+            }
+            segment.add(event);
+        }
+
+        File written=null;
+        try {
+            written=File.createTempFile(file.getName(),".tmp",file.getAbsoluteFile().getParentFile());
+            writeSegments(written,events.size(),segments);
+            Files.move(written.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            if(written!=null)
+                written.delete();
+            throw new OperationException("File cannot be saved "+ file.getAbsolutePath());
+        }
+    }
+
+    //region Internal Methods
+
+    /**
+     * Writes the header, the segment index and the segments to a file.
+     * @param file the file to write to
+     * @param eventCount the number of events of all segments
+     * @param segments the segments ordered by month
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeSegments(File file, int eventCount, List<Segment> segments) throws IOException {
+        try (DataOutputStream output=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeShort(SEGMENTED_VERSION);
+            output.writeInt(eventCount);
+            output.writeInt(segments.size());
+
+            int offset=HEADER_SIZE+segments.size()*INDEX_ENTRY_SIZE;
+            for(Segment entry:segments){
+                output.writeInt(entry.month);
+                output.writeInt(entry.events.size());
+                output.writeInt(offset);
+                output.writeInt(entry.length());
+                offset+=entry.length();
+            }
+
+            for(Segment entry:segments)
+                entry.write(output);
+        }
+    }
+
+    /**
+     * Reads a file of the first version, with a single record table and string table, all at once.
+     * @param buffer the mapped file, positioned after the version
+     * @return the calendar contained in the file
+     * @throws InvalidTimeIntervalException if a record has an invalid time interval
+     */
+    private static PersonalCalendar readFlat(ByteBuffer buffer) throws InvalidTimeIntervalException {
+        int eventCount=buffer.getInt();
+        int stringCount=buffer.getInt();
+
+        String[] strings=readStrings(buffer,HEADER_SIZE+eventCount*RECORD_SIZE,stringCount);
+
+        PersonalCalendar personalCalendar=new PersonalCalendar();
+        buffer.position(HEADER_SIZE);
+        for(int i=0;i<eventCount;i++)
+            personalCalendar.addEvent(readEvent(buffer,strings));
+
+        return personalCalendar;
+    }
+
+    /**
+     * Decodes the event record at the position of the buffer.
+     * @param buffer the buffer, its position is moved past the record
+     * @param strings the string table the record refers to
+     * @return the event
+     * @throws InvalidTimeIntervalException if the record has an invalid time interval
+     */
+    private static CalendarEvent readEvent(ByteBuffer buffer, String[] strings) throws InvalidTimeIntervalException {
+        CalendarEvent event=new CalendarEvent();
+        event.setDate(LocalDate.ofEpochDay(buffer.getInt()));
+        LocalTime startTime=TimeEncoding.toLocalTime(buffer.getShort());
+        event.setEndTime(TimeEncoding.toLocalTime(buffer.getShort()));
+        event.setStartTime(startTime);
+        event.setHoliday((buffer.get()&HOLIDAY_FLAG)!=0);
+        event.setName(stringAt(strings,buffer.getInt()));
+        event.setNote(stringAt(strings,buffer.getInt()));
+        return event;
+    }
+
+    /**
+     * Decodes a string table.
+     * @param buffer the buffer
+     * @param offset position of the string table
+     * @param stringCount number of strings in the table
+     * @return the decoded strings by index
+     */
+    private static String[] readStrings(ByteBuffer buffer, int offset, int stringCount){
+        String[] strings=new String[stringCount];
+        buffer.position(offset);
+
+        for(int i=0;i<stringCount;i++){
+            byte[] bytes=new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i]=new String(bytes,StandardCharsets.UTF_8);
+        }
+
+        return strings;
+    }
+
+    /**
+     * Returns the string at the given index of the table.
+     * @param strings the string table
+     * @param index index of the string, or {@link #NO_STRING}
+     * @return the string, or null for {@link #NO_STRING}
+     */
+    private static String stringAt(String[] strings, int index){
+        return index==NO_STRING ? null : strings[index];
+    }
+
+    //endregion
+
+    //region Internal Classes
+
+    /**
+     * The events of a month and their string table, collected for writing.
+     */
+    private static final class Segment {
+
+        /**
+         * The epoch month.
+         */
+        private final int month;
+
+        /**
+         * The events of the month in date and start time order.
+         */
+        private final List<CalendarEvent> events=new ArrayList<>();
+
+        /**
+         * Indexes of the strings of the month.
+         */
+        private final Map<String,Integer> stringIndexes=new HashMap<>();
+
+        /**
+         * The strings of the month by index.
+         */
+        private final List<String> strings=new ArrayList<>();
+
+        /**
+         * Size of the string table in bytes.
+         */
+        private int stringBytes=Integer.BYTES;
+
+        /**
+         * Constructs an empty segment.
+         * @param month the epoch month
+         */
+        private Segment(int month) {
+            this.month=month;
+        }
+
+        /**
+         * Adds an event and its strings to the segment.
+         * @param event the event
+         */
+        private void add(CalendarEvent event){
+            events.add(event);
+            indexOf(event.getName());
+            indexOf(event.getNote());
+        }
+
+        /**
+         * Returns the size of the segment in bytes.
+         * @return the size of the records and the string table
+         */
+        private int length(){
+            return events.size()*RECORD_SIZE+stringBytes;
+        }
+
+        /**
+         * Writes the records and the string table.
+         * @param output the file
+         * @throws IOException if the file cannot be written
+         */
+        private void write(DataOutputStream output) throws IOException {
+            for(CalendarEvent event:events){
+                output.writeInt(event.getEpochDay());
+                output.writeShort(event.getStartMinute());
+                output.writeShort(event.getEndMinute());
+                output.writeByte(event.isHoliday() ? HOLIDAY_FLAG : 0);
+                output.writeInt(indexOf(event.getName()));
+                output.writeInt(indexOf(event.getNote()));
+            }
+
+            output.writeInt(strings.size());
+            for(String value:strings){
+                byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        /**
+         * Returns the index of the string in the table, adding it if it is not there yet.
+         * @param value the string
+         * @return the index of the string, or {@link #NO_STRING} for null
+         */
+        private int indexOf(String value){
+            if(value==null)
+                return NO_STRING;
+
+            return stringIndexes.computeIfAbsent(value,key->{
+                strings.add(key);
+                stringBytes+=Integer.BYTES+key.getBytes(StandardCharsets.UTF_8).length;
+                return strings.size()-1;
+            });
+        }
+    }
+
+    /**
+     * The months of a mapped file of the segmented version. The index is read and checked when the file is opened,
+     * a segment is decoded from its own slice of the mapping, so months can be read concurrently.
+     */
+    private static final class MappedSegments implements SegmentSource {
+
+        /**
+         * The mapped file.
+         */
+        private final File file;
+
+        /**
+         * The mapping of the file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The epoch months of the segments, ascending.
+         */
+        private final int[] months;
+
+        /**
+         * Number of events of the segments.
+         */
+        private final int[] eventCounts;
+
+        /**
+         * Positions of the segments in the file.
+         */
+        private final int[] offsets;
+
+        /**
+         * Sizes of the segments in bytes.
+         */
+        private final int[] lengths;
+
+        /**
+         * Reads the segment index of a mapped file.
+         * @param file the file
+         * @param buffer the mapping, positioned after the version
+         * @throws IllegalArgumentException if the index is damaged
+         */
+        private MappedSegments(File file, ByteBuffer buffer) {
+            this.file=file;
+            this.buffer=buffer;
+
+            buffer.getInt();
+            int segmentCount=buffer.getInt();
+            if(segmentCount<0||(long) segmentCount*INDEX_ENTRY_SIZE>buffer.remaining())
+                throw new IllegalArgumentException("Damaged segment index");
+
+            this.months=new int[segmentCount];
+            this.eventCounts=new int[segmentCount];
+            this.offsets=new int[segmentCount];
+            this.lengths=new int[segmentCount];
+
+            int dataStart=HEADER_SIZE+segmentCount*INDEX_ENTRY_SIZE;
+            for(int i=0;i<segmentCount;i++){
+                months[i]=buffer.getInt();
+                eventCounts[i]=buffer.getInt();
+                offsets[i]=buffer.getInt();
+                lengths[i]=buffer.getInt();
+
+                if((i>0&&months[i]<=months[i-1])||eventCounts[i]<0||offsets[i]<dataStart||lengths[i]<0
+                        ||(long) offsets[i]+lengths[i]>buffer.capacity()||(long) eventCounts[i]*RECORD_SIZE+Integer.BYTES>lengths[i])
+                    throw new IllegalArgumentException("Damaged segment index");
+            }
+        }
+
+        @Override
+        public int[] getMonths() {
+            return months.clone();
+        }
+
+        @Override
+        public int getEventCount(int month) {
+            int i=Arrays.binarySearch(months,month);
+            return i<0 ? 0 : eventCounts[i];
+        }
+
+        @Override
+        public List<CalendarEvent> readSegment(int month) throws OperationException {
+            int i=Arrays.binarySearch(months,month);
+            if(i<0)
+                return new ArrayList<>();
+
+            try {
+                ByteBuffer segment=buffer.slice(offsets[i],lengths[i]);
+                int recordsSize=eventCounts[i]*RECORD_SIZE;
+                segment.position(recordsSize);
+                String[] strings=readStrings(segment,recordsSize+Integer.BYTES,segment.getInt());
+
+                List<CalendarEvent> events=new ArrayList<>(eventCounts[i]);
+                segment.position(0);
+                for(int j=0;j<eventCounts[i];j++)
+                    events.add(readEvent(segment,strings));
+                return events;
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException |
+                     NegativeArraySizeException | DateTimeException | InvalidTimeIntervalException e) {
+                throw new OperationException("Cannot read "+file.getAbsolutePath()+": damaged segment of "
+                        +LocalDate.EPOCH.plusMonths(month).withDayOfMonth(1)+".");
+            }
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,123 @@
+package project.models.parsers;
+
+import project.models.calendar.PersonalCalendar;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Shared holder of the {@link JAXBContext} for {@link PersonalCalendar}.
+ * Creating the context reflects over the whole model and is the most expensive step of JAXB, so it is created once
+ * and reused by every read and write. The context is thread-safe, while marshallers and unmarshallers are not,
+ * so they are pooled and handed out to one thread at a time.
+ */
+public final class JAXBContextHolder {
+
+    /**
+     * Maximum number of idle marshallers and unmarshallers kept in each pool.
+     */
+    private static final int POOL_SIZE=Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The shared context, created on first use.
+     */
+    private static volatile JAXBContext context;
+
+    /**
+     * Idle marshallers ready to be reused.
+     */
+    private static final BlockingQueue<Marshaller> marshallers=new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Idle unmarshallers ready to be reused.
+     */
+    private static final BlockingQueue<Unmarshaller> unmarshallers=new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * A private constructor because we don't want initializations of this class.
+     */
+    private JAXBContextHolder(){}
+
+    /**
+     * Returns the shared context, creating it on the first call.
+     * @return the context for {@link PersonalCalendar}
+     * @throws JAXBException if the context cannot be created
+     */
+    public static JAXBContext getContext() throws JAXBException {
+        JAXBContext result=context;
+        if(result==null){
+            synchronized (JAXBContextHolder.class){
+                result=context;
+                if(result==null){
+                    result=JAXBContext.newInstance(PersonalCalendar.class);
+                    context=result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes a marshaller configured for formatted output from the pool, or creates one if the pool is empty.
+     * It must be given back with {@link #releaseMarshaller(Marshaller)}.
+     * @return a marshaller used only by the caller
+     * @throws JAXBException if a marshaller cannot be created
+     */
+    public static Marshaller acquireMarshaller() throws JAXBException {
+        Marshaller marshaller=marshallers.poll();
+        if(marshaller==null) {
+            marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        }
+        return marshaller;
+    }
+
+    /**
+     * Gives a marshaller back to the pool. It is dropped if the pool is full.
+     * @param marshaller the marshaller taken with {@link #acquireMarshaller()}
+     */
+    public static void releaseMarshaller(Marshaller marshaller){
+        marshallers.offer(marshaller);
+    }
+
+    /**
+     * Takes an unmarshaller from the pool, or creates one if the pool is empty.
+     * It must be given back with {@link #releaseUnmarshaller(Unmarshaller)}.
+     * @return an unmarshaller used only by the caller
+     * @throws JAXBException if an unmarshaller cannot be created
+     */
+    public static Unmarshaller acquireUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller=unmarshallers.poll();
+        if(unmarshaller==null)
+            unmarshaller=getContext().createUnmarshaller();
+        return unmarshaller;
+    }
+
+    /**
+     * Gives an unmarshaller back to the pool. It is dropped if the pool is full.
+     * @param unmarshaller the unmarshaller taken with {@link #acquireUnmarshaller()}
+     */
+    public static void releaseUnmarshaller(Unmarshaller unmarshaller){
+        unmarshallers.offer(unmarshaller);
+    }
+
+    /**
+     * Starts creating the context and one marshaller and unmarshaller on a background daemon thread,
+     * so the first open or save does not pay the bootstrap cost. Failures are ignored here,
+     * they are reported by the first read or write instead.
+     */
+    public static void warmUp(){
+        Thread thread=new Thread(() -> {
+            try {
+                releaseMarshaller(acquireMarshaller());
+                releaseUnmarshaller(acquireUnmarshaller());
+            } catch (JAXBException ignored) {}
+        },"jaxb-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
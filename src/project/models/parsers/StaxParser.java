@@ -0,0 +1,199 @@
+package project.models.parsers;
+
+import project.contracts.FileParser;
+import project.exceptions.InvalidTimeIntervalException;
+import project.exceptions.OperationException;
+import project.models.calendar.CalendarEvent;
+import project.models.calendar.PersonalCalendar;
+import project.util.adapters.LocalDateAdapter;
+import project.util.adapters.LocalTimeAdapter;
+
+import javax.xml.stream.*;
+import java.io.*;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The StaxParser class reads and writes the same {@code <calendar><event>} XML schema as {@link XMLParser},
+ * but streams it through StAX instead of going through JAXB.
+ * Events are built one by one while the file is read and written one by one while the file is written,
+ * so there is no reflection over the model and no intermediate object graph besides the calendar itself.
+ */
+public final class StaxParser implements FileParser<PersonalCalendar> {
+
+    //region XML Names
+    private static final String CALENDAR="calendar";
+    private static final String EVENT="event";
+    private static final String NAME="name";
+    private static final String DATE="date";
+    private static final String NOTE="note";
+    private static final String START_TIME="startTime";
+    private static final String END_TIME="endTime";
+    private static final String IS_HOLIDAY="isHoliday";
+    //endregion
+
+    /**
+     * Indentation used for every nesting level of the written file.
+     */
+    private static final String INDENT="    ";
+
+    /**
+     * Adapter used to convert the date elements.
+     */
+    private static final LocalDateAdapter DATE_ADAPTER=new LocalDateAdapter();
+
+    /**
+     * Adapter used to convert the start and end time elements.
+     */
+    private static final LocalTimeAdapter TIME_ADAPTER=new LocalTimeAdapter();
+
+    /**
+     * Default constructor
+     */
+    public StaxParser(){}
+
+    /**
+     * Streams the specified XML file and returns the calendar it contains.
+     * DTDs and external entities are not processed, so a calendar file cannot pull in other files.
+     * @param file the path of the file to read.
+     * @return the calendar contained in the file.
+     * @throws OperationException if there is an error reading the file.
+     */
+    @Override
+    public PersonalCalendar readFile(File file) throws OperationException {
+        PersonalCalendar personalCalendar=new PersonalCalendar();
+
+        try (InputStream inputStream=new BufferedInputStream(new FileInputStream(file))) {
+            XMLInputFactory factory=XMLInputFactory.newDefaultFactory();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD,false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,false);
+            XMLStreamReader reader=factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals(EVENT))
+                        personalCalendar.addEvent(readEvent(reader));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException | DateTimeParseException | InvalidTimeIntervalException ignored) {
+            throw new OperationException("Cannot open: "+file.getAbsolutePath());
+        }
+
+        return personalCalendar;
+    }
+
+    /**
+     * Streams the calendar object to the specified XML file.
+     * @param personalCalendar the calendar to write.
+     * @param file the file to write to.
+     * @throws OperationException if there is an error writing to the file.
+     */
+    @Override
+    public void writeFile(PersonalCalendar personalCalendar, File file) throws OperationException {
+
+        try (OutputStream outputStream=new BufferedOutputStream(new FileOutputStream(file))) {
+            XMLStreamWriter writer=XMLOutputFactory.newDefaultFactory().createXMLStreamWriter(outputStream,"UTF-8");
+            try {
+                writer.writeStartDocument("UTF-8","1.0");
+                writer.writeCharacters("\n");
+                writer.writeStartElement(CALENDAR);
+
+                for (CalendarEvent event : personalCalendar.getCalendarEvents())
+                    writeEvent(writer,event);
+
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndDocument();
+            } finally {
+                writer.close();
+            }
+        } catch (IOException | XMLStreamException ignored) {
+            throw new OperationException("File cannot be saved "+ file.getAbsolutePath());
+        }
+    }
+
+    //region Internal Methods
+
+    /**
+     * Reads one {@code <event>} element. The reader must be positioned on its start tag and is left on its end tag.
+     * Unknown child elements are skipped the same way JAXB skips them.
+     * @param reader the reader positioned on the event
+     * @return the read event
+     * @throws XMLStreamException if the XML is malformed
+     * @throws InvalidTimeIntervalException if the start time of the event is after its end time
+     */
+    private CalendarEvent readEvent(XMLStreamReader reader) throws XMLStreamException, InvalidTimeIntervalException {
+        CalendarEvent event=new CalendarEvent();
+        event.setHoliday(Boolean.parseBoolean(reader.getAttributeValue(null,IS_HOLIDAY)));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case NAME -> event.setName(reader.getElementText());
+                case DATE -> event.setDate(DATE_ADAPTER.unmarshal(reader.getElementText().trim()));
+                case NOTE -> event.setNote(reader.getElementText());
+                case START_TIME -> event.setStartTime(TIME_ADAPTER.unmarshal(reader.getElementText().trim()));
+                case END_TIME -> event.setEndTime(TIME_ADAPTER.unmarshal(reader.getElementText().trim()));
+                default -> skipElement(reader);
+            }
+        }
+
+        return event;
+    }
+
+    /**
+     * Skips the element the reader is positioned on, including all of its children.
+     * @param reader the reader positioned on a start tag
+     * @throws XMLStreamException if the XML is malformed
+     */
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth=1;
+        while (depth>0) {
+            int eventType=reader.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (eventType == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    /**
+     * Writes one {@code <event>} element in the layout produced by {@link XMLParser}.
+     * @param writer the writer
+     * @param event the event to write
+     * @throws XMLStreamException if the event cannot be written
+     */
+    private void writeEvent(XMLStreamWriter writer, CalendarEvent event) throws XMLStreamException {
+        writer.writeCharacters("\n"+INDENT);
+        writer.writeStartElement(EVENT);
+        writer.writeAttribute(IS_HOLIDAY,String.valueOf(event.isHoliday()));
+
+        writeElement(writer,NAME,event.getName());
+        writeElement(writer,DATE,DATE_ADAPTER.marshal(event.getDate()));
+        writeElement(writer,NOTE,event.getNote());
+        writeElement(writer,END_TIME,TIME_ADAPTER.marshal(event.getEndTime()));
+        writeElement(writer,START_TIME,TIME_ADAPTER.marshal(event.getStartTime()));
+
+        writer.writeCharacters("\n"+INDENT);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Writes a simple text element, skipping it when the value is null as JAXB does.
+     * @param writer the writer
+     * @param name the name of the element
+     * @param value the text of the element
+     * @throws XMLStreamException if the element cannot be written
+     */
+    private void writeElement(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (value == null)
+            return;
+
+        writer.writeCharacters("\n"+INDENT+INDENT);
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    //endregion
+}
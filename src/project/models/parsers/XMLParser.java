@@ -5,7 +5,6 @@ import project.exceptions.OperationException;
 import project.models.calendar.PersonalCalendar;
 import project.models.calendar.CalendarEvent;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
@@ -15,6 +14,7 @@ import java.util.Set;
 /**
  * The XMLParser class is responsible for parsing and manipulating CalendarEvents stored in an XML file.
  * This class implements the FileParser interface, and therefore is responsible for reading and writing files.
+ * The JAXB context and the (un)marshallers are shared through {@link JAXBContextHolder}.
  */
 public final class XMLParser implements FileParser<PersonalCalendar> {
 
@@ -33,9 +33,12 @@ public final class XMLParser implements FileParser<PersonalCalendar> {
     public PersonalCalendar readFile(File file) throws OperationException {
         PersonalCalendar personalCalendar;
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(PersonalCalendar.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            personalCalendar =(PersonalCalendar) unmarshaller.unmarshal(file);
+            Unmarshaller unmarshaller = JAXBContextHolder.acquireUnmarshaller();
+            try {
+                personalCalendar = (PersonalCalendar) unmarshaller.unmarshal(file);
+            } finally {
+                JAXBContextHolder.releaseUnmarshaller(unmarshaller);
+            }
         } catch (JAXBException ignored) {
             throw new OperationException("Cannot open: "+file.getAbsolutePath());
         }
@@ -50,10 +53,12 @@ public final class XMLParser implements FileParser<PersonalCalendar> {
     public void writeFile(PersonalCalendar personalCalendar,File file) throws OperationException {
 
         try {
-            JAXBContext jaxbContext=JAXBContext.newInstance(PersonalCalendar.class);
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.marshal(personalCalendar,file);
+            Marshaller marshaller = JAXBContextHolder.acquireMarshaller();
+            try {
+                marshaller.marshal(personalCalendar,file);
+            } finally {
+                JAXBContextHolder.releaseMarshaller(marshaller);
+            }
         } catch (JAXBException ignored) {
             throw new OperationException("File cannot be saved "+ file.getAbsolutePath());
         }
@@ -0,0 +1,296 @@
+package project.models.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import project.exceptions.CalendarException;
+import project.models.cli.CalendarCLI;
+import project.models.operations.Commands;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP front end of the calendar, built on the JDK's {@link HttpServer}.
+ * Every endpoint is a command of the command line interface: {@code POST /book}, {@code POST /unbook},
+ * {@code POST /save}, {@code GET /agenda}, {@code GET /find}, {@code GET /findslot}, {@code GET /busydays} and {@code GET /stats}.
+ * The arguments are the query parameters named as in the command's usage, for example
+ * {@code /book?date=10-03-2026&startTime=10:00&endTime=11:00&name=Sync&note=Weekly},
+ * or the parameter {@code args} with the arguments exactly as typed in the console, for example
+ * {@code /agenda?args=week 10-03-2026}.
+ * The answer is a JSON object with the lines the command printed, or with the message of its error.
+ * <p>
+ * Every request is served by its own virtual thread when the JDK provides them, otherwise by a fixed pool,
+ * and runs the operation through {@link CalendarCLI#execute(Commands, List)} against the shared, concurrent calendar.
+ */
+public class CalendarServer {
+
+    /**
+     * Maximum number of pending connections.
+     */
+    private static final int BACKLOG=1024;
+
+    /**
+     * Name of the parameter holding all arguments as typed in the console.
+     */
+    private static final String ARGUMENTS_PARAMETER="args";
+
+    /**
+     * Seconds given to the running requests when the server stops.
+     */
+    private static final int STOP_DELAY=1;
+
+    /**
+     * Commands served through POST requests, they change the calendar or its file.
+     */
+    private static final Set<Commands> POST_COMMANDS=EnumSet.of(Commands.BOOK,Commands.UNBOOK,Commands.SAVE);
+
+    /**
+     * Commands served through GET requests, they only read the calendar.
+     */
+    private static final Set<Commands> GET_COMMANDS=EnumSet.of(Commands.AGENDA,Commands.FIND,Commands.FINDSLOT,Commands.BUSYDAYS,Commands.STATS);
+
+    /**
+     * The command line interface which executes the commands.
+     */
+    private final CalendarCLI calendarCLI;
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer httpServer;
+
+    /**
+     * Executor of the requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a server on the loopback address.
+     * @param calendarCLI the command line interface which executes the commands
+     * @param port the port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CalendarServer(CalendarCLI calendarCLI, int port) throws IOException {
+        this.calendarCLI=calendarCLI;
+        this.httpServer=HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),port),BACKLOG);
+        this.executor=newRequestExecutor();
+
+        for(Commands command:POST_COMMANDS)
+            httpServer.createContext("/"+command.getName(),exchange->handle(exchange,command,"POST"));
+        for(Commands command:GET_COMMANDS)
+            httpServer.createContext("/"+command.getName(),exchange->handle(exchange,command,"GET"));
+        httpServer.createContext("/",exchange->respond(exchange,404,error("No such endpoint: "+exchange.getRequestURI().getPath())));
+
+        httpServer.setExecutor(executor);
+    }
+
+    /**
+     * Starts serving requests in the background.
+     */
+    public void start(){
+        RequestOutput.install();
+        httpServer.start();
+    }
+
+    /**
+     * Stops the server, giving the running requests a moment to finish.
+     */
+    public void stop(){
+        httpServer.stop(STOP_DELAY);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the port
+     */
+    public int getPort(){
+        return httpServer.getAddress().getPort();
+    }
+
+    //region Internal Methods
+
+    /**
+     * Serves a request of a command.
+     * @param exchange the request
+     * @param command the command of the endpoint
+     * @param method the HTTP method of the endpoint
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handle(HttpExchange exchange, Commands command, String method) throws IOException {
+        if(!exchange.getRequestMethod().equals(method)) {
+            exchange.getResponseHeaders().set("Allow",method);
+            respond(exchange,405,error("'"+command.getName()+"' expects "+method));
+            return;
+        }
+
+        List<String> instructions=instructionsOf(command,parseQuery(exchange.getRequestURI().getRawQuery()));
+
+        int status=200;
+        String error=null;
+        RequestOutput.begin();
+        try {
+            calendarCLI.execute(command,instructions);
+        } catch (CalendarException e) {
+            status=400;
+            error=e.getMessage();
+        } catch (RuntimeException e) {
+            status=500;
+            error=e.toString();
+        } finally {
+            String output=RequestOutput.end();
+            respond(exchange,status,result(command,status==200,output,error));
+        }
+    }
+
+    /**
+     * Returns the arguments of the command from the query parameters.
+     * @param command the command
+     * @param parameters the query parameters
+     * @return the arguments in the order of the command's usage
+     */
+    private static List<String> instructionsOf(Commands command, Map<String,String> parameters){
+        String arguments=parameters.get(ARGUMENTS_PARAMETER);
+        if(arguments!=null)
+            return arguments.isBlank() ? new ArrayList<>() : new ArrayList<>(CalendarCLI.splitArguments(arguments.trim()));
+
+        List<String> instructions=new ArrayList<>();
+        for(String placeholder:command.getInstructions().trim().split(" ")){
+            if(placeholder.isEmpty())
+                continue;
+
+            String value=parameters.get(placeholder.substring(1,placeholder.length()-1));
+            if(value==null)
+                break;
+            instructions.add(value);
+        }
+        return instructions;
+    }
+
+    /**
+     * Decodes the query string of a request.
+     * @param rawQuery the raw query, may be null
+     * @return the parameters by name
+     */
+    private static Map<String,String> parseQuery(String rawQuery){
+        Map<String,String> parameters=new HashMap<>();
+        if(rawQuery==null)
+            return parameters;
+
+        for(String pair:rawQuery.split("&")){
+            int separator=pair.indexOf('=');
+            String name= separator<0 ? pair : pair.substring(0,separator);
+            String value= separator<0 ? "" : pair.substring(separator+1);
+            parameters.put(URLDecoder.decode(name,StandardCharsets.UTF_8),URLDecoder.decode(value,StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Sends a JSON answer and closes the request.
+     * @param exchange the request
+     * @param status the HTTP status
+     * @param json the JSON body
+     * @throws IOException if the answer cannot be sent
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body=json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type","application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status,body.length);
+        try (OutputStream output=exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Builds the JSON answer of a command.
+     * @param command the command
+     * @param ok whether the command succeeded
+     * @param output what the command printed
+     * @param error the error message, null if the command succeeded
+     * @return the JSON object
+     */
+    private static String result(Commands command, boolean ok, String output, String error){
+        StringBuilder json=new StringBuilder();
+        json.append("{\"command\":").append(quote(command.getName()));
+        json.append(",\"ok\":").append(ok);
+        json.append(",\"output\":[");
+
+        String separator="";
+        for(String line:output.split("\\R")){
+            if(line.isBlank())
+                continue;
+            json.append(separator).append(quote(line.stripTrailing()));
+            separator=",";
+        }
+        json.append(']');
+
+        if(error!=null)
+            json.append(",\"error\":").append(quote(error.trim()));
+        return json.append('}').toString();
+    }
+
+    /**
+     * Builds the JSON answer of a request which did not reach a command.
+     * @param message the error message
+     * @return the JSON object
+     */
+    private static String error(String message){
+        return "{\"ok\":false,\"error\":"+quote(message)+"}";
+    }
+
+    /**
+     * Quotes and escapes a JSON string.
+     * @param value the string
+     * @return the JSON string literal
+     */
+    private static String quote(String value){
+        StringBuilder quoted=new StringBuilder(value.length()+2).append('"');
+        for(int i=0;i<value.length();i++){
+            char character=value.charAt(i);
+            switch (character) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if(character<0x20)
+                        quoted.append(String.format("\\u%04x",(int) character));
+                    else
+                        quoted.append(character);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Creates the executor of the requests: one virtual thread per request if the JDK provides virtual threads,
+     * otherwise a fixed pool of daemon threads. The virtual thread executor is looked up reflectively,
+     * so the server also runs on JDKs without virtual threads.
+     * @return the executor
+     */
+    private static ExecutorService newRequestExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ignored) {
+            AtomicInteger threadNumber=new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(4,2*Runtime.getRuntime().availableProcessors()),runnable->{
+                Thread thread=new Thread(runnable,"calendar-http-"+threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,365 @@
+package project.models.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Standard output which is routed per thread.
+ * The operations print their results to {@link System#out}. While a thread serves a request, what it prints is
+ * collected in the buffer of that request, everything printed by other threads goes to the console as before.
+ * <p>
+ * The methods of a {@link PrintStream} lock the stream, so the installed stream hands every call of a request to a
+ * print stream of its own and only the console output takes the lock of {@link System#out}.
+ * Concurrent requests do not wait for each other, and virtual threads are not pinned on the shared stream.
+ */
+final class RequestOutput extends OutputStream {
+
+    /**
+     * Output of the request served by the current thread, null if the thread serves no request.
+     */
+    private static final ThreadLocal<Request> REQUEST=new ThreadLocal<>();
+
+    /**
+     * The standard output replaced by the routing output.
+     */
+    private final OutputStream console;
+
+    /**
+     * Constructs a routing output.
+     * @param console the output of the threads which serve no request
+     */
+    private RequestOutput(OutputStream console) {
+        this.console=console;
+    }
+
+    /**
+     * Replaces {@link System#out} with a routing output, unless it was already replaced.
+     */
+    static synchronized void install(){
+        if(System.out instanceof RoutingStream)
+            return;
+        System.setOut(new RoutingStream(new RequestOutput(System.out)));
+    }
+
+    /**
+     * Starts collecting the output of the current thread.
+     */
+    static void begin(){
+        ByteArrayOutputStream buffer=new ByteArrayOutputStream();
+        REQUEST.set(new Request(buffer,new PrintStream(buffer,false,StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Stops collecting the output of the current thread.
+     * @return the collected output
+     */
+    static String end(){
+        Request request=REQUEST.get();
+        REQUEST.remove();
+        if(request==null)
+            return "";
+
+        request.stream.flush();
+        return request.buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the print stream of the request served by the current thread.
+     * @return the print stream, null if the thread serves no request
+     */
+    private static PrintStream requestStream(){
+        Request request=REQUEST.get();
+        return request==null ? null : request.stream;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        PrintStream stream=requestStream();
+        if(stream!=null)
+            stream.write(b);
+        else
+            console.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        PrintStream stream=requestStream();
+        if(stream!=null)
+            stream.write(b,off,len);
+        else
+            console.write(b,off,len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if(requestStream()==null)
+            console.flush();
+    }
+
+    /**
+     * The output of a request.
+     * @param buffer the collected bytes
+     * @param stream the print stream over the buffer, used only by the thread serving the request
+     */
+    private record Request(ByteArrayOutputStream buffer, PrintStream stream) {}
+
+    /**
+     * The print stream installed as {@link System#out}. While the current thread serves a request, every call is
+     * handed whole to the print stream of the request without taking the lock of this stream.
+     * Otherwise the call goes to the console through this stream, which flushes on every write.
+     */
+    private static final class RoutingStream extends PrintStream {
+
+        /**
+         * Constructs the stream.
+         * @param output the routing output
+         */
+        private RoutingStream(RequestOutput output) {
+            super(output,true,StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void write(int b) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.write(b);
+            else
+                super.write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.write(buf,off,len);
+            else
+                super.write(buf,off,len);
+        }
+
+        @Override
+        public void flush() {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.flush();
+            else
+                super.flush();
+        }
+
+        //region Print
+
+        @Override
+        public void print(boolean b) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(b);
+            else
+                super.print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(c);
+            else
+                super.print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(i);
+            else
+                super.print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(l);
+            else
+                super.print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(f);
+            else
+                super.print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(d);
+            else
+                super.print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(s);
+            else
+                super.print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(s);
+            else
+                super.print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.print(obj);
+            else
+                super.print(obj);
+        }
+
+        //endregion
+
+        //region Println
+
+        @Override
+        public void println() {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println();
+            else
+                super.println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.println(x);
+            else
+                super.println(x);
+        }
+
+        //endregion
+
+        //region Format
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.format(format,args);
+            else
+                super.format(format,args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.format(l,format,args);
+            else
+                super.format(l,format,args);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            PrintStream stream=requestStream();
+            if(stream!=null)
+                stream.append(csq,start,end);
+            else
+                super.append(csq,start,end);
+            return this;
+        }
+
+        //endregion
+    }
+}
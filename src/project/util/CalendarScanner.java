@@ -1,27 +1,58 @@
 package project.util;
 
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
 
 /**
  * Scanner class.
+ * Lines are read through a single shared {@link BufferedReader}, so the commands and the answers to the questions
+ * of the commands come from the same source, the console or a batch script.
  */
 public final class CalendarScanner {
 
     /**
-     * A static final Scanner object used to read input from the console.
+     * The reader used to read input lines, the console by default.
      */
-    private static final Scanner scanner=new Scanner(System.in);
+    private static BufferedReader reader=new BufferedReader(new InputStreamReader(System.in));
 
     /**
      * A private constructor because we don't want initializations of this class.
      */
     private CalendarScanner(){}
 
+    /**
+     * Replaces the source of the input lines.
+     * @param input the new source of the input lines
+     */
+    public static void setInput(Reader input){
+        reader= input instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(input);
+    }
+
     /**
      * The scan function of the scanner
      * @return string line of the console input
+     * @throws NoSuchElementException if the input has ended
      */
     public static String scanNextLine(){
-        return scanner.nextLine();
+        String line=nextLineOrNull();
+        if(line==null)
+            throw new NoSuchElementException("No line found");
+        return line;
+    }
+
+    /**
+     * Reads the next input line.
+     * @return the next line, or null if the input has ended
+     */
+    public static String nextLineOrNull(){
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,70 @@
+package project.util;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Encodes times of the day as minutes of the day and dates as months since the epoch for the compact file formats.
+ */
+public final class TimeEncoding {
+
+    /**
+     * Minute of day used for {@link LocalTime#MAX}, the end of the day.
+     */
+    public static final int END_OF_DAY=24*60;
+
+    /**
+     * A private constructor because we don't want initializations of this class.
+     */
+    private TimeEncoding(){}
+
+    /**
+     * Encodes a time as minute of day. Seconds are dropped, {@link LocalTime#MAX} is encoded as {@link #END_OF_DAY}.
+     * @param time the time to encode
+     * @return the minute of day
+     */
+    public static int toMinuteOfDay(LocalTime time){
+        if(time.equals(LocalTime.MAX))
+            return END_OF_DAY;
+        return time.getHour()*60+time.getMinute();
+    }
+
+    /**
+     * Decodes a minute of day written by {@link #toMinuteOfDay(LocalTime)}.
+     * @param minuteOfDay the minute of day
+     * @return the time
+     */
+    public static LocalTime toLocalTime(int minuteOfDay){
+        if(minuteOfDay==END_OF_DAY)
+            return LocalTime.MAX;
+        return LocalTime.of(minuteOfDay/60,minuteOfDay%60);
+    }
+
+    /**
+     * Encodes the month of a date as the number of months since January 1970.
+     * @param epochDay the date as epoch day
+     * @return the epoch month, negative for months before 1970
+     */
+    public static int toEpochMonth(int epochDay){
+        LocalDate date=LocalDate.ofEpochDay(epochDay);
+        return (date.getYear()-1970)*12+date.getMonthValue()-1;
+    }
+
+    /**
+     * Returns the first day of a month written by {@link #toEpochMonth(int)}.
+     * @param epochMonth the epoch month
+     * @return the first day of the month as epoch day
+     */
+    public static int firstDayOfMonth(int epochMonth){
+        return Math.toIntExact(LocalDate.EPOCH.plusMonths(epochMonth).toEpochDay());
+    }
+
+    /**
+     * Returns the last day of a month written by {@link #toEpochMonth(int)}.
+     * @param epochMonth the epoch month
+     * @return the last day of the month as epoch day
+     */
+    public static int lastDayOfMonth(int epochMonth){
+        return firstDayOfMonth(epochMonth+1)-1;
+    }
+}